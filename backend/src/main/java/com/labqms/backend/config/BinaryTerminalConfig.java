@@ -0,0 +1,41 @@
+package com.labqms.backend.config;
+
+import com.labqms.backend.controller.BinaryTerminalHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+/**
+ * Raw WebSocket endpoint of the binary terminal, alongside the STOMP one in {@link WebSocketConfig}.
+ * No SockJS fallback here. permessage-deflate is negotiated by the servlet container (Tomcat)
+ * whenever the client offers it.
+ */
+@Configuration
+@EnableWebSocket
+public class BinaryTerminalConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private BinaryTerminalHandler binaryTerminalHandler;
+
+    // Start frames carry the whole program, the container's default of 8 KB is too small
+    @Value("${coderunner.terminal.binary.max-message-bytes:65536}")
+    private int maxMessageBytes;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(binaryTerminalHandler, "/ws-terminal-raw")
+                .setAllowedOriginPatterns("*");
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(maxMessageBytes);
+        return container;
+    }
+}
@@ -0,0 +1,134 @@
+package com.labqms.backend.config;
+
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for the STOMP client channels that runs each message on a single-threaded lane, so
+ * related messages stay in order while unrelated ones use every core. Priority destinations
+ * (proctoring alerts) get lanes of their own and never queue behind terminal output.
+ *
+ * <p>Both channels are keyed by session. Inbound, that keeps each connection's frames in the
+ * order they arrived (a DISCONNECT can't overtake the SUBSCRIBE before it). Outbound, every frame
+ * for one connection goes through one lane, whatever its destination, so a terminal replay sent
+ * to {@code /user/topic/terminal/{studentId}} can't be overtaken by the live output that follows
+ * it on {@code /topic/terminal/{studentId}}. Only MESSAGE frames are routed by priority,
+ * subscriptions share their session's lane.
+ */
+public class PartitionedMessageExecutor implements TaskExecutor {
+
+    private final Lane[] lanes;
+    private final Lane[] priorityLanes;
+    private final List<String> priorityPrefixes;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public PartitionedMessageExecutor(String name, int laneCount, int priorityLaneCount, int queueCapacity,
+                                      List<String> priorityPrefixes) {
+        this.lanes = createLanes(name, Math.max(1, laneCount), queueCapacity);
+        this.priorityLanes = createLanes(name + "-priority", Math.max(1, priorityLaneCount), queueCapacity);
+        this.priorityPrefixes = priorityPrefixes;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Message<?> message = task instanceof MessageHandlingRunnable handling ? handling.getMessage() : null;
+        String destination = message == null ? null : SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        Lane[] group = isPriority(message, destination) ? priorityLanes : lanes;
+        String key = sessionId(message);
+        Lane lane = group[key == null ? 0 : Math.floorMod(key.hashCode(), group.length)];
+        try {
+            lane.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    public void shutdown() {
+        for (Lane lane : lanes) lane.shutdownNow();
+        for (Lane lane : priorityLanes) lane.shutdownNow();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lanes", statsOf(lanes));
+        stats.put("priorityLanes", statsOf(priorityLanes));
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    private boolean isPriority(Message<?> message, String destination) {
+        if (destination == null || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return false;
+        }
+        for (String prefix : priorityPrefixes) {
+            if (destination.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static String sessionId(Message<?> message) {
+        return message == null ? null : SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+    }
+
+    private static Lane[] createLanes(String name, int count, int queueCapacity) {
+        Lane[] lanes = new Lane[count];
+        for (int i = 0; i < count; i++) {
+            lanes[i] = new Lane(name + "-" + i, queueCapacity);
+        }
+        return lanes;
+    }
+
+    private static Map<String, Object> statsOf(Lane[] lanes) {
+        long queued = 0;
+        int deepest = 0;
+        int peak = 0;
+        long completed = 0;
+        for (Lane lane : lanes) {
+            int depth = lane.getQueue().size();
+            queued += depth;
+            deepest = Math.max(deepest, depth);
+            peak = Math.max(peak, lane.peakDepth.get());
+            completed += lane.getCompletedTaskCount();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", lanes.length);
+        stats.put("queued", queued);
+        stats.put("deepestQueue", deepest);
+        stats.put("peakQueue", peak);
+        stats.put("completed", completed);
+        return stats;
+    }
+
+    private static class Lane extends ThreadPoolExecutor {
+
+        private final AtomicInteger peakDepth = new AtomicInteger();
+
+        Lane(String threadName, int queueCapacity) {
+            super(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueCapacity), r -> {
+                Thread t = new Thread(r, threadName);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(command);
+            peakDepth.accumulateAndGet(getQueue().size(), Math::max);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.labqms.backend.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level cache for papers and questions, kept in process by Caffeine through
+ * JCache. Every region is created here with a size bound; Hibernate is told to fail on any region
+ * it does not find rather than quietly create an unbounded one.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    // Region names used by the @Cache annotations on the entities
+    public static final List<String> REGIONS = List.of(
+            "paper", "paper.questions",
+            "question", "question.options",
+            "bankQuestion", "bankQuestion.options");
+
+    @Value("${cache.second-level.max-entries:10000}")
+    private long maxEntries;
+
+    // Safety net only, writes through the services evict right away
+    @Value("${cache.second-level.expire-after-write-minutes:60}")
+    private long expireAfterWriteMinutes;
+
+    // Hit/miss counters for /api/cache/stats; Hibernate then also counts every session and statement
+    @Value("${cache.second-level.statistics:false}")
+    private boolean statistics;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        for (String region : REGIONS) {
+            if (cacheManager.getCache(region) != null) continue;
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maxEntries));
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MINUTES.toNanos(expireAfterWriteMinutes)));
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, statistics);
+        };
+    }
+}
@@ -1,15 +1,43 @@
 package com.labqms.backend.config;
 
+import com.labqms.backend.service.OutboundSessionPolicies;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private OutboundSessionPolicies outboundSessionPolicies;
+
+    // 0 means one lane per core
+    @Value("${websocket.broker.inbound-lanes:0}")
+    private int inboundLanes;
+
+    @Value("${websocket.broker.outbound-lanes:0}")
+    private int outboundLanes;
+
+    @Value("${websocket.broker.priority-lanes:2}")
+    private int priorityLanes;
+
+    @Value("${websocket.broker.lane-queue-capacity:10000}")
+    private int laneQueueCapacity;
+
+    // Proctoring alerts never wait behind terminal output
+    @Value("${websocket.broker.priority-destinations:/topic/proctoring/,/app/violation}")
+    private List<String> priorityDestinations;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic");
@@ -22,4 +50,36 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    // Each connection gets its own outbound buffer, slow clients are handled per destination policy
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(outboundSessionPolicies::decorate);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.executor(inboundMessageExecutor());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.executor(outboundMessageExecutor());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public PartitionedMessageExecutor inboundMessageExecutor() {
+        return new PartitionedMessageExecutor("ws-inbound", lanes(inboundLanes),
+                priorityLanes, laneQueueCapacity, priorityDestinations);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public PartitionedMessageExecutor outboundMessageExecutor() {
+        return new PartitionedMessageExecutor("ws-outbound", lanes(outboundLanes),
+                priorityLanes, laneQueueCapacity, priorityDestinations);
+    }
+
+    private static int lanes(int configured) {
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+    }
 }
@@ -0,0 +1,83 @@
+package com.labqms.backend.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.labqms.backend.service.BinaryTerminalSessions;
+import com.labqms.backend.service.InteractiveCodeRunnerService;
+import com.labqms.backend.service.TerminalFrameCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * The interactive terminal over a raw WebSocket with binary frames ({@link TerminalFrameCodec}),
+ * next to the STOMP/SockJS one. Clients connect to {@code /ws-terminal-raw?studentId=...}.
+ */
+@Component
+public class BinaryTerminalHandler extends BinaryWebSocketHandler {
+
+    private static final String STUDENT_ID = "studentId";
+    private static final String SENDER = "binaryTerminalSender";
+
+    @Autowired
+    private InteractiveCodeRunnerService interactiveCodeRunnerService;
+
+    @Autowired
+    private BinaryTerminalSessions binaryTerminalSessions;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String studentId = session.getUri() == null ? null
+                : UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst(STUDENT_ID);
+        if (studentId == null || studentId.isBlank()) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("studentId is required"));
+            return;
+        }
+        session.getAttributes().put(STUDENT_ID, studentId);
+        session.getAttributes().put(SENDER, binaryTerminalSessions.add(studentId, session));
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        String studentId = (String) session.getAttributes().get(STUDENT_ID);
+        ByteBuffer frame = message.getPayload();
+        if (studentId == null || !frame.hasRemaining()) return;
+
+        switch (frame.get(0)) {
+            case TerminalFrameCodec.START -> {
+                Map<String, String> payload = objectMapper.readValue(TerminalFrameCodec.text(frame), new TypeReference<>() {});
+                boolean rawInput = "raw".equalsIgnoreCase(payload.get("inputMode"));
+                interactiveCodeRunnerService.startExecution(studentId, payload.get("code"), payload.get("language"),
+                        payload.get("paperId"), session.getId(), rawInput);
+            }
+            case TerminalFrameCodec.INPUT -> interactiveCodeRunnerService.handleInput(studentId, TerminalFrameCodec.text(frame));
+            case TerminalFrameCodec.STOP -> interactiveCodeRunnerService.stopExecution(studentId);
+            case TerminalFrameCodec.INPUT_MODE -> interactiveCodeRunnerService.setRawMode(studentId,
+                    frame.remaining() > 1 && frame.get(1) == 1);
+            case TerminalFrameCodec.RESUME -> {
+                long lastSeq = frame.remaining() >= 9 ? frame.getLong(1) : 0;
+                WebSocketSession sender = (WebSocketSession) session.getAttributes().get(SENDER);
+                interactiveCodeRunnerService.resume(studentId, lastSeq, session.getId(),
+                        replayed -> binaryTerminalSessions.send(sender, replayed));
+            }
+            default -> session.close(CloseStatus.BAD_DATA.withReason("Unknown frame type " + frame.get(0)));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        String studentId = (String) session.getAttributes().get(STUDENT_ID);
+        if (studentId == null) return;
+        binaryTerminalSessions.remove(studentId, (WebSocketSession) session.getAttributes().get(SENDER));
+        interactiveCodeRunnerService.detachConnection(session.getId());
+    }
+}
@@ -0,0 +1,27 @@
+package com.labqms.backend.controller;
+
+import com.labqms.backend.service.EntityCacheService;
+import com.labqms.backend.service.PaperSnapshotCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+@CrossOrigin(origins = "*")
+public class CacheController {
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private PaperSnapshotCache paperSnapshotCache;
+
+    // Second-level cache hit ratios (overall and per region) and the paper snapshots in front of it
+    @GetMapping("/stats")
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "secondLevel", entityCacheService.getStats(),
+                "paperSnapshots", paperSnapshotCache.getStats());
+    }
+}
@@ -1,17 +1,42 @@
 package com.labqms.backend.controller;
 
+import com.labqms.backend.config.PartitionedMessageExecutor;
+import com.labqms.backend.model.BatchExecutionResult;
+import com.labqms.backend.model.BatchRunRequest;
+import com.labqms.backend.model.CodeJob;
+import com.labqms.backend.model.ExecutionRecordPage;
+import com.labqms.backend.model.ExecutionResult;
+import com.labqms.backend.model.InteractiveSessionInfo;
+import com.labqms.backend.service.BinaryTerminalSessions;
+import com.labqms.backend.service.CodeJobService;
 import com.labqms.backend.service.CodeRunnerService;
+import com.labqms.backend.service.CompilationCache;
+import com.labqms.backend.service.ExecutionRecordService;
+import com.labqms.backend.service.ExecutionScheduler;
 import com.labqms.backend.service.InteractiveCodeRunnerService;
+import com.labqms.backend.service.InteractiveSessionRegistry;
+import com.labqms.backend.service.JavaWorkerPool;
+import com.labqms.backend.service.OutboundSessionPolicies;
+import com.labqms.backend.service.ProcessIoExecutor;
+import com.labqms.backend.service.PythonForkServer;
+import com.labqms.backend.service.WorkspaceManager;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/code")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "X-Queue-Wait-Ms")
 public class CodeRunnerController {
 
     @Autowired
@@ -20,20 +45,189 @@ public class CodeRunnerController {
     @Autowired
     private InteractiveCodeRunnerService interactiveCodeRunnerService;
 
+    @Autowired
+    private CodeJobService codeJobService;
+
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    @Autowired
+    private JavaWorkerPool javaWorkerPool;
+
+    @Autowired
+    private PythonForkServer pythonForkServer;
+
+    @Autowired
+    private CompilationCache compilationCache;
+
+    @Autowired
+    private ExecutionRecordService executionRecordService;
+
+    @Autowired
+    private WorkspaceManager workspaceManager;
+
+    @Autowired
+    private ProcessIoExecutor processIoExecutor;
+
+    @Autowired
+    private InteractiveSessionRegistry interactiveSessionRegistry;
+
+    @Autowired
+    private BinaryTerminalSessions binaryTerminalSessions;
+
+    @Autowired
+    private OutboundSessionPolicies outboundSessionPolicies;
+
+    @Autowired
+    private PartitionedMessageExecutor inboundMessageExecutor;
+
+    @Autowired
+    private PartitionedMessageExecutor outboundMessageExecutor;
+
+    // How long /run and /run-batch keep the request open while the run queues and executes
+    @Value("${coderunner.scheduler.request-timeout-ms:300000}")
+    private long runTimeoutMillis;
+
+    // Runs complete on the scheduler's threads; the servlet thread is handed back while they queue
     @PostMapping("/run")
-    public String runCode(@RequestBody Map<String, String> request) {
+    public DeferredResult<ResponseEntity<String>> runCode(@RequestBody Map<String, String> request, HttpServletRequest httpRequest) {
         String code = request.get("code");
         String language = request.get("language");
         String input = request.get("input");
-        return codeRunnerService.runCode(code, language, input);
+        String studentId = request.get("studentId") != null ? request.get("studentId") : httpRequest.getRemoteAddr();
+        DeferredResult<ResponseEntity<String>> deferred = new DeferredResult<>(runTimeoutMillis,
+                ResponseEntity.status(503).body("Internal System Error: run did not finish in time"));
+        try {
+            executionScheduler
+                    .submit(studentId, () -> {
+                        ExecutionResult result = codeRunnerService.execute(code, language, input);
+                        executionRecordService.record(studentId, language, "RUN", result);
+                        return codeRunnerService.format(result, language);
+                    })
+                    .whenComplete((run, error) -> deferred.setResult(error != null
+                            ? ResponseEntity.internalServerError().body("Internal System Error: " + error.getMessage())
+                            : ResponseEntity.ok()
+                                    .header("X-Queue-Wait-Ms", String.valueOf(run.getQueueWaitMillis()))
+                                    .body(run.getResult())));
+        } catch (ExecutionScheduler.RejectedException e) {
+            deferred.setResult(ResponseEntity.status(e.getStatus()).header("Retry-After", "1").body(e.getMessage()));
+        }
+        return deferred;
+    }
+
+    @PostMapping("/run-batch")
+    public DeferredResult<ResponseEntity<?>> runBatch(@RequestBody BatchRunRequest request, HttpServletRequest httpRequest) {
+        String studentId = request.getStudentId() != null ? request.getStudentId() : httpRequest.getRemoteAddr();
+        DeferredResult<ResponseEntity<?>> deferred = new DeferredResult<>(runTimeoutMillis,
+                ResponseEntity.status(503).body(Map.of("error", "Run did not finish in time")));
+        try {
+            executionScheduler
+                    .submit(studentId, codeRunnerService.batchWidth(request.getTestCases(), request.isParallel()),
+                            () -> codeRunnerService.runBatch(request.getCode(), request.getLanguage(),
+                                    request.getTestCases(), request.isParallel()))
+                    .whenComplete((run, error) -> {
+                        if (error != null) {
+                            deferred.setResult(ResponseEntity.internalServerError().body(Map.of("error", String.valueOf(error.getMessage()))));
+                            return;
+                        }
+                        BatchExecutionResult result = run.getResult();
+                        executionRecordService.recordBatch(studentId, request.getLanguage(), result);
+                        result.setQueueWaitMillis(run.getQueueWaitMillis());
+                        deferred.setResult(ResponseEntity.ok(result));
+                    });
+        } catch (ExecutionScheduler.RejectedException e) {
+            deferred.setResult(ResponseEntity.status(e.getStatus()).header("Retry-After", "1").body(Map.of("error", e.getMessage())));
+        }
+        return deferred;
+    }
+
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestBody Map<String, String> request, HttpServletRequest httpRequest) {
+        String studentId = request.get("studentId") != null ? request.get("studentId") : httpRequest.getRemoteAddr();
+        try {
+            CodeJob job = codeJobService.submit(studentId, request.get("code"), request.get("language"), request.get("input"));
+            return ResponseEntity.accepted().body(job);
+        } catch (ExecutionScheduler.RejectedException e) {
+            return ResponseEntity.status(e.getStatus()).header("Retry-After", "1").body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<CodeJob> getJob(@PathVariable String id) {
+        return codeJobService.getJob(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Long-poll: answers as soon as the job finishes, or with 202 and the job state after waitMs
+    @GetMapping("/jobs/{id}/result")
+    public DeferredResult<ResponseEntity<?>> awaitJob(@PathVariable String id, @RequestParam(defaultValue = "30000") long waitMs) {
+        DeferredResult<ResponseEntity<?>> deferred = new DeferredResult<>(waitMs);
+        CodeJob job = codeJobService.getJob(id).orElse(null);
+        if (job == null) {
+            deferred.setResult(ResponseEntity.notFound().build());
+            return deferred;
+        }
+        deferred.onTimeout(() -> deferred.setResult(ResponseEntity.accepted().body(job)));
+        job.getCompletion().thenAccept((ExecutionResult result) -> deferred.setResult(ResponseEntity.ok(result)));
+        return deferred;
+    }
+
+    // Paged, newest first; pass nextCursor back as cursor for the following page
+    @GetMapping("/records/{studentId}")
+    public ResponseEntity<ExecutionRecordPage> getRecords(@PathVariable String studentId,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(executionRecordService.getByStudent(studentId, cursor, Math.max(1, Math.min(limit, 200))));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/sessions")
+    public List<InteractiveSessionInfo> getSessions() {
+        return interactiveCodeRunnerService.getSessions();
+    }
+
+    @DeleteMapping("/sessions/{studentId}")
+    public ResponseEntity<Void> endSession(@PathVariable String studentId) {
+        interactiveCodeRunnerService.stopExecution(studentId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> getStats() {
+        return Map.ofEntries(
+                Map.entry("scheduler", executionScheduler.getStats()),
+                Map.entry("javaWorkers", javaWorkerPool.getStats()),
+                Map.entry("pythonForkServer", pythonForkServer.getStats()),
+                Map.entry("compilationCache", compilationCache.getStats()),
+                Map.entry("workspaces", workspaceManager.getStats()),
+                Map.entry("terminal", interactiveCodeRunnerService.getTerminalStats()),
+                Map.entry("processIo", processIoExecutor.getStats()),
+                Map.entry("interactiveSessions", interactiveSessionRegistry.getStats()),
+                Map.entry("binaryTerminal", binaryTerminalSessions.getStats()),
+                Map.entry("executionRecords", executionRecordService.getStats()),
+                Map.entry("broker", Map.of(
+                        "inbound", inboundMessageExecutor.getStats(),
+                        "outbound", outboundMessageExecutor.getStats())));
+    }
+
+    // Outbound buffers of the WebSocket connections, with dropped/merged counts per connection
+    @GetMapping("/ws-sessions")
+    public Map<String, Object> getWebSocketSessions() {
+        return outboundSessionPolicies.getStats();
     }
 
     // WebSocket Message Mappings
     @MessageMapping("/start/{studentId}")
-    public void startInteractive(@DestinationVariable String studentId, Map<String, String> payload) {
+    public void startInteractive(@DestinationVariable String studentId, Map<String, String> payload,
+                                 @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String connectionId) {
         String code = payload.get("code");
         String language = payload.get("language");
-        interactiveCodeRunnerService.startExecution(studentId, code, language);
+        boolean rawInput = "raw".equalsIgnoreCase(payload.get("inputMode"));
+        interactiveCodeRunnerService.startExecution(studentId, code, language, payload.get("paperId"), connectionId, rawInput);
     }
 
     @MessageMapping("/input/{studentId}")
@@ -41,6 +235,28 @@ public class CodeRunnerController {
         interactiveCodeRunnerService.handleInput(studentId, input);
     }
 
+    @MessageMapping("/input-mode/{studentId}")
+    public void setInputMode(@DestinationVariable String studentId, Map<String, String> payload) {
+        interactiveCodeRunnerService.setRawMode(studentId, "raw".equalsIgnoreCase(payload.get("inputMode")));
+    }
+
+    // A reconnecting terminal sends the last sequence number it saw and gets the rest replayed
+    @MessageMapping("/resume/{studentId}")
+    public void resumeInteractive(@DestinationVariable String studentId, Map<String, String> payload,
+                                  @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String connectionId) {
+        interactiveCodeRunnerService.resume(studentId, parseSeq(payload.get("lastSeq")), connectionId);
+    }
+
+    // A missing or malformed sequence number replays everything still in the scrollback
+    private static long parseSeq(String lastSeq) {
+        if (lastSeq == null) return 0;
+        try {
+            return Math.max(0, Long.parseLong(lastSeq.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     @MessageMapping("/stop/{studentId}")
     public void stopExecution(@DestinationVariable String studentId) {
         interactiveCodeRunnerService.stopExecution(studentId);
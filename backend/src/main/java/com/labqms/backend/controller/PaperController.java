@@ -1,11 +1,19 @@
 package com.labqms.backend.controller;
 
 import com.labqms.backend.model.Paper;
+import com.labqms.backend.model.PaperView;
 import com.labqms.backend.service.PaperService;
+import com.labqms.backend.service.PaperSnapshotCache;
+import com.labqms.backend.service.PaperSnapshotCache.Snapshot;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/papers")
@@ -15,23 +23,81 @@ public class PaperController {
     @Autowired
     private PaperService paperService;
 
+    @Autowired
+    private PaperSnapshotCache paperSnapshotCache;
+
     @GetMapping
-    public List<Paper> getPapers(@RequestParam(required = false) String teacherId) {
+    public List<PaperView> getPapers(@RequestParam(required = false) String teacherId) {
         if (teacherId != null) {
             return paperService.getPapersByTeacher(teacherId);
         }
         return paperService.getAllPapers();
     }
 
+    // Served from the pre-serialized snapshot; clients revalidate with If-None-Match and get a 304
     @GetMapping("/{id}")
-    public ResponseEntity<Paper> getPaperById(@PathVariable String id) {
-        return paperService.getPaperById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getPaperById(@PathVariable String id,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return snapshotResponse(paperSnapshotCache.get(id), ifNoneMatch, acceptEncoding);
+    }
+
+    // Join-by-code: the same snapshot, looked up by the paper's access code
+    @GetMapping("/access/{accessCode}")
+    public ResponseEntity<byte[]> getPaperByAccessCode(@PathVariable String accessCode,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                       @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return snapshotResponse(paperSnapshotCache.getByAccessCode(accessCode), ifNoneMatch, acceptEncoding);
     }
 
     @PostMapping
-    public ResponseEntity<Paper> createPaper(@RequestBody Paper paper) {
+    public ResponseEntity<PaperView> createPaper(@RequestBody Paper paper) {
         return ResponseEntity.ok(paperService.createPaper(paper));
     }
+
+    private static ResponseEntity<byte[]> snapshotResponse(Optional<Snapshot> found, String ifNoneMatch, String acceptEncoding) {
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Snapshot snapshot = found.get();
+        boolean gzipped = acceptsGzip(acceptEncoding);
+        String etag = snapshot.getEtag(gzipped);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        // Papers can still be edited before the exam, so caches must always revalidate
+        headers.setCacheControl(CacheControl.noCache());
+        if (matches(ifNoneMatch, snapshot)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (gzipped) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return new ResponseEntity<>(gzipped ? snapshot.getGzip() : snapshot.getJson(), headers, HttpStatus.OK);
+    }
+
+    // Weak comparison as If-None-Match requires; either representation's tag means the client is current
+    private static boolean matches(String ifNoneMatch, Snapshot snapshot) {
+        if (ifNoneMatch == null) return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(snapshot.getEtag(false)) || tag.equals(snapshot.getEtag(true))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
 }
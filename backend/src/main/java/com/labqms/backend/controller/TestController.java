@@ -1,10 +1,12 @@
 package com.labqms.backend.controller;
 
 import com.labqms.backend.model.Test;
+import com.labqms.backend.model.TestSummaryPage;
 import com.labqms.backend.service.TestService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @RestController
@@ -23,6 +25,26 @@ public class TestController {
         return testService.getAllTests();
     }
 
+    // Paged result list without answers; pass nextCursor back as cursor for the following page
+    @GetMapping("/summaries")
+    public ResponseEntity<TestSummaryPage> getSummaries(@RequestParam(required = false) String studentId,
+                                                        @RequestParam(required = false) String paperId,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(testService.getSummaries(studentId, paperId, cursor, Math.max(1, Math.min(limit, 200))));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Test> getTest(@PathVariable String id) {
+        return testService.getTest(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PostMapping
     public ResponseEntity<Test> submitTest(@RequestBody Test test) {
         return ResponseEntity.ok(testService.submitTest(test));
@@ -1,15 +1,16 @@
 package com.labqms.backend.controller;
 
 import com.labqms.backend.model.Violation;
-import com.labqms.backend.repository.ViolationRepository;
+import com.labqms.backend.service.ViolationIngestService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @CrossOrigin(origins = "*")
@@ -17,32 +18,44 @@ import java.util.List;
 public class ViolationController {
 
     @Autowired
-    private ViolationRepository violationRepository;
+    private ViolationIngestService violationIngestService;
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    // Acknowledged once buffered; the id is assigned to the buffer's copy when the batch is written,
+    // so what is broadcast and returned here has none
     @PostMapping
-    public Violation logViolation(@RequestBody Violation violation) {
-        violation.setTimestamp(LocalDateTime.now());
-        Violation saved = violationRepository.save(violation);
-        
+    public ResponseEntity<?> logViolation(@RequestBody Violation violation) {
+        if (!violationIngestService.submit(violation)) {
+            return ResponseEntity.status(503).header("Retry-After", "1")
+                    .body(Map.of("error", "Too many violations are being recorded. Please try again in a moment."));
+        }
         // Broadcast to teacher topic
         // Assuming we follow a topic pattern: /topic/proctoring/{paperId}
-        messagingTemplate.convertAndSend("/topic/proctoring/" + violation.getPaperId(), saved);
-        
-        return saved;
+        messagingTemplate.convertAndSend("/topic/proctoring/" + violation.getPaperId(), violation);
+
+        return ResponseEntity.accepted().body(violation);
     }
 
+    // Stored violations plus those still waiting in the write buffer
     @GetMapping("/paper/{paperId}")
     public List<Violation> getByPaper(@PathVariable String paperId) {
-        return violationRepository.findByPaperId(paperId);
+        return violationIngestService.getByPaper(paperId);
+    }
+
+    @GetMapping("/ingest-stats")
+    public Map<String, Object> getIngestStats() {
+        return violationIngestService.getStats();
     }
     
     @MessageMapping("/violation")
     public void handleWebSocketViolation(@Payload Violation violation) {
-        violation.setTimestamp(LocalDateTime.now());
-        Violation saved = violationRepository.save(violation);
-        messagingTemplate.convertAndSend("/topic/proctoring/" + violation.getPaperId(), saved);
+        // Nothing to answer over STOMP; a refused violation is not broadcast either, so the
+        // live view never shows what the report will not have. Never waits for buffer space,
+        // this runs on an inbound priority lane
+        if (violationIngestService.trySubmit(violation)) {
+            messagingTemplate.convertAndSend("/topic/proctoring/" + violation.getPaperId(), violation);
+        }
     }
 }
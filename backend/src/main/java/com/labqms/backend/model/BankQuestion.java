@@ -1,10 +1,15 @@
 package com.labqms.backend.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.List;
 
 @Entity
 @Table(name = "bank_questions")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "bankQuestion")
 public class BankQuestion {
     @Id
     private String id;
@@ -12,7 +17,10 @@ public class BankQuestion {
     @Column(columnDefinition = "TEXT", nullable = false)
     private String text;
     
+    // Options of a whole page of questions come back in one query instead of one per question
     @ElementCollection
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "bankQuestion.options")
     @CollectionTable(name = "bank_question_options", joinColumns = @JoinColumn(name = "bank_question_id"))
     @Column(name = "option_text")
     private List<String> options;
@@ -0,0 +1,51 @@
+package com.labqms.backend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchExecutionResult {
+    private ExecutionStatus status; // COMPILATION_ERROR / INTERNAL_ERROR, otherwise SUCCESS once all cases ran
+    private String error;
+    private List<CompilationDiagnostic> diagnostics;
+    private long queueWaitMillis;
+    private long compileMillis;
+    private long totalMillis;
+    private int passedCount;
+    private List<TestCaseResult> results = new ArrayList<>();
+
+    public BatchExecutionResult() {
+    }
+
+    public static BatchExecutionResult failed(ExecutionResult result) {
+        BatchExecutionResult batch = new BatchExecutionResult();
+        batch.setStatus(result.getStatus());
+        batch.setError(result.getStderr());
+        batch.setDiagnostics(result.getDiagnostics());
+        batch.setCompileMillis(result.getCompileMillis());
+        return batch;
+    }
+
+    public ExecutionStatus getStatus() { return status; }
+    public void setStatus(ExecutionStatus status) { this.status = status; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public List<CompilationDiagnostic> getDiagnostics() { return diagnostics; }
+    public void setDiagnostics(List<CompilationDiagnostic> diagnostics) { this.diagnostics = diagnostics; }
+
+    public long getQueueWaitMillis() { return queueWaitMillis; }
+    public void setQueueWaitMillis(long queueWaitMillis) { this.queueWaitMillis = queueWaitMillis; }
+
+    public long getCompileMillis() { return compileMillis; }
+    public void setCompileMillis(long compileMillis) { this.compileMillis = compileMillis; }
+
+    public long getTotalMillis() { return totalMillis; }
+    public void setTotalMillis(long totalMillis) { this.totalMillis = totalMillis; }
+
+    public int getPassedCount() { return passedCount; }
+    public void setPassedCount(int passedCount) { this.passedCount = passedCount; }
+
+    public List<TestCaseResult> getResults() { return results; }
+    public void setResults(List<TestCaseResult> results) { this.results = results; }
+}
@@ -0,0 +1,26 @@
+package com.labqms.backend.model;
+
+import java.util.List;
+
+public class BatchRunRequest {
+    private String studentId;
+    private String code;
+    private String language;
+    private List<TestCase> testCases;
+    private boolean parallel;
+
+    public String getStudentId() { return studentId; }
+    public void setStudentId(String studentId) { this.studentId = studentId; }
+
+    public String getCode() { return code; }
+    public void setCode(String code) { this.code = code; }
+
+    public String getLanguage() { return language; }
+    public void setLanguage(String language) { this.language = language; }
+
+    public List<TestCase> getTestCases() { return testCases; }
+    public void setTestCases(List<TestCase> testCases) { this.testCases = testCases; }
+
+    public boolean isParallel() { return parallel; }
+    public void setParallel(boolean parallel) { this.parallel = parallel; }
+}
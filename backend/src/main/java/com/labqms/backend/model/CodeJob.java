@@ -0,0 +1,49 @@
+package com.labqms.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+public class CodeJob {
+    private String id;
+    private String studentId;
+    private String language;
+    private LocalDateTime submittedAt;
+    // Written by the run thread and polled by HTTP threads; result is set before status turns COMPLETED
+    private volatile String status = "QUEUED"; // "QUEUED", "RUNNING", "COMPLETED"
+    private volatile ExecutionResult result;
+
+    @JsonIgnore
+    private final CompletableFuture<ExecutionResult> completion = new CompletableFuture<>();
+
+    public CodeJob() {
+    }
+
+    public CodeJob(String id, String studentId, String language, LocalDateTime submittedAt) {
+        this.id = id;
+        this.studentId = studentId;
+        this.language = language;
+        this.submittedAt = submittedAt;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getStudentId() { return studentId; }
+    public void setStudentId(String studentId) { this.studentId = studentId; }
+
+    public String getLanguage() { return language; }
+    public void setLanguage(String language) { this.language = language; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public LocalDateTime getSubmittedAt() { return submittedAt; }
+    public void setSubmittedAt(LocalDateTime submittedAt) { this.submittedAt = submittedAt; }
+
+    public ExecutionResult getResult() { return result; }
+    public void setResult(ExecutionResult result) { this.result = result; }
+
+    public CompletableFuture<ExecutionResult> getCompletion() { return completion; }
+}
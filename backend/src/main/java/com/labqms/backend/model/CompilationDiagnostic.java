@@ -0,0 +1,50 @@
+package com.labqms.backend.model;
+
+public class CompilationDiagnostic {
+    private String kind; // "ERROR", "WARNING", ...
+    private String source;
+    private long line;
+    private long column;
+    private String message;
+
+    public CompilationDiagnostic() {
+    }
+
+    public CompilationDiagnostic(String kind, String source, long line, long column, String message) {
+        this.kind = kind;
+        this.source = source;
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    public String getKind() { return kind; }
+    public void setKind(String kind) { this.kind = kind; }
+
+    public String getSource() { return source; }
+    public void setSource(String source) { this.source = source; }
+
+    public long getLine() { return line; }
+    public void setLine(long line) { this.line = line; }
+
+    public long getColumn() { return column; }
+    public void setColumn(long column) { this.column = column; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    // Same shape as javac's own output, e.g. "Main.java:3: error: ';' expected"
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (source != null) {
+            sb.append(source);
+            if (line > 0) {
+                sb.append(':').append(line);
+            }
+            sb.append(": ");
+        }
+        sb.append(kind == null ? "error" : kind.toLowerCase()).append(": ").append(message);
+        return sb.toString();
+    }
+}
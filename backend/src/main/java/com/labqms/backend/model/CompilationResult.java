@@ -0,0 +1,64 @@
+package com.labqms.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class CompilationResult {
+    private boolean success;
+    private List<CompilationDiagnostic> diagnostics;
+    private long compileTimeMillis;
+    private boolean cached;
+    // The compiler could not do its job (missing, timed out, I/O error); says nothing about the source
+    @JsonIgnore
+    private boolean systemError;
+
+    // Binary class name -> class file bytes (executable name -> binary for C/C++), only populated on success
+    @JsonIgnore
+    private Map<String, byte[]> classes;
+
+    public CompilationResult() {
+    }
+
+    public CompilationResult(boolean success, Map<String, byte[]> classes, List<CompilationDiagnostic> diagnostics, long compileTimeMillis) {
+        this.success = success;
+        this.classes = classes;
+        this.diagnostics = diagnostics;
+        this.compileTimeMillis = compileTimeMillis;
+    }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public Map<String, byte[]> getClasses() { return classes == null ? Collections.emptyMap() : classes; }
+    public void setClasses(Map<String, byte[]> classes) { this.classes = classes; }
+
+    public List<CompilationDiagnostic> getDiagnostics() { return diagnostics == null ? Collections.emptyList() : diagnostics; }
+    public void setDiagnostics(List<CompilationDiagnostic> diagnostics) { this.diagnostics = diagnostics; }
+
+    public long getCompileTimeMillis() { return compileTimeMillis; }
+    public void setCompileTimeMillis(long compileTimeMillis) { this.compileTimeMillis = compileTimeMillis; }
+
+    public boolean isCached() { return cached; }
+    public void setCached(boolean cached) { this.cached = cached; }
+
+    public boolean isSystemError() { return systemError; }
+
+    public String formatDiagnostics(String lineSeparator) {
+        StringBuilder sb = new StringBuilder();
+        for (CompilationDiagnostic d : getDiagnostics()) {
+            sb.append(d).append(lineSeparator);
+        }
+        return sb.toString();
+    }
+
+    /** A compile that failed for reasons outside the source, reported as a single error. */
+    public static CompilationResult failure(String message) {
+        CompilationResult result = new CompilationResult(false, null,
+                List.of(new CompilationDiagnostic("ERROR", null, -1, -1, message)), 0);
+        result.systemError = true;
+        return result;
+    }
+}
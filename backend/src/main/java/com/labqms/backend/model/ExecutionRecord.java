@@ -0,0 +1,99 @@
+package com.labqms.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "execution_records", indexes = {
+    // Keyset paging of a student's records, newest first
+    @Index(name = "idx_execution_records_student", columnList = "studentId, id")
+})
+public class ExecutionRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String studentId;
+
+    private String language;
+
+    @Column(nullable = false)
+    private String mode; // "RUN", "BATCH", "INTERACTIVE"
+
+    @Enumerated(EnumType.STRING)
+    private ExecutionStatus status;
+
+    private int exitCode;
+
+    private long wallMillis;
+
+    private long cpuUserMillis;
+
+    private long cpuSystemMillis;
+
+    private long peakMemoryKb;
+
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+
+    public ExecutionRecord() {}
+
+    public ExecutionRecord(String studentId, String language, String mode, ExecutionResult result) {
+        this.studentId = studentId;
+        this.language = language;
+        this.mode = mode;
+        this.status = result.getStatus();
+        this.exitCode = result.getExitCode();
+        this.wallMillis = result.getRunMillis();
+        this.cpuUserMillis = result.getCpuUserMillis();
+        this.cpuSystemMillis = result.getCpuSystemMillis();
+        this.peakMemoryKb = result.getPeakMemoryKb();
+        this.timestamp = LocalDateTime.now();
+    }
+
+    public ExecutionRecord(String studentId, String language, String mode, TestCaseResult result) {
+        this.studentId = studentId;
+        this.language = language;
+        this.mode = mode;
+        this.status = result.getStatus();
+        this.exitCode = result.getExitCode();
+        this.wallMillis = result.getRunMillis();
+        this.cpuUserMillis = result.getCpuUserMillis();
+        this.cpuSystemMillis = result.getCpuSystemMillis();
+        this.peakMemoryKb = result.getPeakMemoryKb();
+        this.timestamp = LocalDateTime.now();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getStudentId() { return studentId; }
+    public void setStudentId(String studentId) { this.studentId = studentId; }
+
+    public String getLanguage() { return language; }
+    public void setLanguage(String language) { this.language = language; }
+
+    public String getMode() { return mode; }
+    public void setMode(String mode) { this.mode = mode; }
+
+    public ExecutionStatus getStatus() { return status; }
+    public void setStatus(ExecutionStatus status) { this.status = status; }
+
+    public int getExitCode() { return exitCode; }
+    public void setExitCode(int exitCode) { this.exitCode = exitCode; }
+
+    public long getWallMillis() { return wallMillis; }
+    public void setWallMillis(long wallMillis) { this.wallMillis = wallMillis; }
+
+    public long getCpuUserMillis() { return cpuUserMillis; }
+    public void setCpuUserMillis(long cpuUserMillis) { this.cpuUserMillis = cpuUserMillis; }
+
+    public long getCpuSystemMillis() { return cpuSystemMillis; }
+    public void setCpuSystemMillis(long cpuSystemMillis) { this.cpuSystemMillis = cpuSystemMillis; }
+
+    public long getPeakMemoryKb() { return peakMemoryKb; }
+    public void setPeakMemoryKb(long peakMemoryKb) { this.peakMemoryKb = peakMemoryKb; }
+
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+}
@@ -0,0 +1,21 @@
+package com.labqms.backend.model;
+
+import java.util.List;
+
+public class ExecutionRecordPage {
+    private List<ExecutionRecord> items;
+    private String nextCursor; // null on the last page
+
+    public ExecutionRecordPage() {}
+
+    public ExecutionRecordPage(List<ExecutionRecord> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ExecutionRecord> getItems() { return items; }
+    public void setItems(List<ExecutionRecord> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,88 @@
+package com.labqms.backend.model;
+
+import java.util.List;
+
+public class ExecutionResult {
+    private ExecutionStatus status;
+    private String stdout;
+    private String stderr;
+    private int exitCode;
+    private boolean timedOut;
+    private boolean outputTruncated;
+    private List<CompilationDiagnostic> diagnostics;
+
+    // Phase timings in milliseconds
+    private long queueWaitMillis;
+    private long compileMillis;
+    private long runMillis;
+
+    // Resource usage of the program itself
+    private long cpuUserMillis;
+    private long cpuSystemMillis;
+    private long peakMemoryKb;
+
+    public ExecutionResult() {
+    }
+
+    public ExecutionResult(String stdout, String stderr, int exitCode, boolean timedOut) {
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.exitCode = exitCode;
+        this.timedOut = timedOut;
+        this.status = timedOut ? ExecutionStatus.TIMEOUT
+                : exitCode != 0 ? ExecutionStatus.RUNTIME_ERROR : ExecutionStatus.SUCCESS;
+    }
+
+    public static ExecutionResult compilationError(CompilationResult compilation) {
+        ExecutionResult result = new ExecutionResult("", compilation.formatDiagnostics("\n"), -1, false);
+        result.setStatus(ExecutionStatus.COMPILATION_ERROR);
+        result.setDiagnostics(compilation.getDiagnostics());
+        result.setCompileMillis(compilation.getCompileTimeMillis());
+        return result;
+    }
+
+    public static ExecutionResult internalError(String message) {
+        ExecutionResult result = new ExecutionResult("", message, -1, false);
+        result.setStatus(ExecutionStatus.INTERNAL_ERROR);
+        return result;
+    }
+
+    public ExecutionStatus getStatus() { return status; }
+    public void setStatus(ExecutionStatus status) { this.status = status; }
+
+    public String getStdout() { return stdout; }
+    public void setStdout(String stdout) { this.stdout = stdout; }
+
+    public String getStderr() { return stderr; }
+    public void setStderr(String stderr) { this.stderr = stderr; }
+
+    public int getExitCode() { return exitCode; }
+    public void setExitCode(int exitCode) { this.exitCode = exitCode; }
+
+    public boolean isTimedOut() { return timedOut; }
+    public void setTimedOut(boolean timedOut) { this.timedOut = timedOut; }
+
+    public boolean isOutputTruncated() { return outputTruncated; }
+    public void setOutputTruncated(boolean outputTruncated) { this.outputTruncated = outputTruncated; }
+
+    public List<CompilationDiagnostic> getDiagnostics() { return diagnostics; }
+    public void setDiagnostics(List<CompilationDiagnostic> diagnostics) { this.diagnostics = diagnostics; }
+
+    public long getQueueWaitMillis() { return queueWaitMillis; }
+    public void setQueueWaitMillis(long queueWaitMillis) { this.queueWaitMillis = queueWaitMillis; }
+
+    public long getCompileMillis() { return compileMillis; }
+    public void setCompileMillis(long compileMillis) { this.compileMillis = compileMillis; }
+
+    public long getRunMillis() { return runMillis; }
+    public void setRunMillis(long runMillis) { this.runMillis = runMillis; }
+
+    public long getCpuUserMillis() { return cpuUserMillis; }
+    public void setCpuUserMillis(long cpuUserMillis) { this.cpuUserMillis = cpuUserMillis; }
+
+    public long getCpuSystemMillis() { return cpuSystemMillis; }
+    public void setCpuSystemMillis(long cpuSystemMillis) { this.cpuSystemMillis = cpuSystemMillis; }
+
+    public long getPeakMemoryKb() { return peakMemoryKb; }
+    public void setPeakMemoryKb(long peakMemoryKb) { this.peakMemoryKb = peakMemoryKb; }
+}
@@ -0,0 +1,9 @@
+package com.labqms.backend.model;
+
+public enum ExecutionStatus {
+    SUCCESS,
+    COMPILATION_ERROR,
+    RUNTIME_ERROR,
+    TIMEOUT,
+    INTERNAL_ERROR
+}
@@ -0,0 +1,61 @@
+package com.labqms.backend.model;
+
+import java.time.LocalDateTime;
+
+public class InteractiveSessionInfo {
+    private String studentId;
+    private String paperId;
+    private String language;
+    private Long pid; // null while still compiling
+    private boolean alive;
+    private boolean rawInput;
+    private boolean detached; // client disconnected, waiting for it to resume
+    private long lastSeq;
+    private LocalDateTime startedAt;
+    private long ageSeconds;
+    private long idleSeconds;
+    private long cpuMillis;
+    private long peakMemoryKb;
+
+    public InteractiveSessionInfo() {
+    }
+
+    public String getStudentId() { return studentId; }
+    public void setStudentId(String studentId) { this.studentId = studentId; }
+
+    public String getPaperId() { return paperId; }
+    public void setPaperId(String paperId) { this.paperId = paperId; }
+
+    public String getLanguage() { return language; }
+    public void setLanguage(String language) { this.language = language; }
+
+    public Long getPid() { return pid; }
+    public void setPid(Long pid) { this.pid = pid; }
+
+    public boolean isAlive() { return alive; }
+    public void setAlive(boolean alive) { this.alive = alive; }
+
+    public boolean isRawInput() { return rawInput; }
+    public void setRawInput(boolean rawInput) { this.rawInput = rawInput; }
+
+    public boolean isDetached() { return detached; }
+    public void setDetached(boolean detached) { this.detached = detached; }
+
+    public long getLastSeq() { return lastSeq; }
+    public void setLastSeq(long lastSeq) { this.lastSeq = lastSeq; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public long getAgeSeconds() { return ageSeconds; }
+    public void setAgeSeconds(long ageSeconds) { this.ageSeconds = ageSeconds; }
+
+    public long getIdleSeconds() { return idleSeconds; }
+    public void setIdleSeconds(long idleSeconds) { this.idleSeconds = idleSeconds; }
+
+    public long getCpuMillis() { return cpuMillis; }
+    public void setCpuMillis(long cpuMillis) { this.cpuMillis = cpuMillis; }
+
+    public long getPeakMemoryKb() { return peakMemoryKb; }
+    public void setPeakMemoryKb(long peakMemoryKb) { this.peakMemoryKb = peakMemoryKb; }
+}
@@ -1,10 +1,18 @@
 package com.labqms.backend.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.List;
 
 @Entity
-@Table(name = "papers")
+@Table(name = "papers", indexes = @Index(name = "idx_papers_access_code", columnList = "accessCode"))
+// Papers referenced by a page of tests are loaded together rather than one query each
+@BatchSize(size = 100)
+// Read by every student opening the exam, written only by the teacher
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "paper")
 public class Paper {
     @Id
     private String id;
@@ -32,6 +40,8 @@ public class Paper {
         inverseJoinColumns = @JoinColumn(name = "question_id")
     )
     @OrderBy("id ASC")
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "paper.questions")
     private List<Question> questions;
     
     @Column(nullable = false)
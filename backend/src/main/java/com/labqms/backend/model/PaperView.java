@@ -0,0 +1,73 @@
+package com.labqms.backend.model;
+
+import java.util.List;
+
+/**
+ * Read model of a {@link Paper} with its questions, built inside the loading transaction so
+ * serializing it can never trigger lazy loading.
+ */
+public class PaperView {
+    private String id;
+    private String title;
+    private String examTitle;
+    private String topic;
+    private Difficulty difficulty;
+    private List<QuestionView> questions;
+    private String teacherId;
+    private String accessCode;
+    private int warningLimit;
+    private String startTime;
+    private String endTime;
+
+    public PaperView() {}
+
+    public static PaperView from(Paper paper) {
+        PaperView view = new PaperView();
+        view.id = paper.getId();
+        view.title = paper.getTitle();
+        view.examTitle = paper.getExamTitle();
+        view.topic = paper.getTopic();
+        view.difficulty = paper.getDifficulty();
+        view.questions = paper.getQuestions() == null ? null
+                : paper.getQuestions().stream().map(QuestionView::from).toList();
+        view.teacherId = paper.getTeacherId();
+        view.accessCode = paper.getAccessCode();
+        view.warningLimit = paper.getWarningLimit();
+        view.startTime = paper.getStartTime();
+        view.endTime = paper.getEndTime();
+        return view;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getExamTitle() { return examTitle; }
+    public void setExamTitle(String examTitle) { this.examTitle = examTitle; }
+
+    public String getTopic() { return topic; }
+    public void setTopic(String topic) { this.topic = topic; }
+
+    public Difficulty getDifficulty() { return difficulty; }
+    public void setDifficulty(Difficulty difficulty) { this.difficulty = difficulty; }
+
+    public List<QuestionView> getQuestions() { return questions; }
+    public void setQuestions(List<QuestionView> questions) { this.questions = questions; }
+
+    public String getTeacherId() { return teacherId; }
+    public void setTeacherId(String teacherId) { this.teacherId = teacherId; }
+
+    public String getAccessCode() { return accessCode; }
+    public void setAccessCode(String accessCode) { this.accessCode = accessCode; }
+
+    public int getWarningLimit() { return warningLimit; }
+    public void setWarningLimit(int warningLimit) { this.warningLimit = warningLimit; }
+
+    public String getStartTime() { return startTime; }
+    public void setStartTime(String startTime) { this.startTime = startTime; }
+
+    public String getEndTime() { return endTime; }
+    public void setEndTime(String endTime) { this.endTime = endTime; }
+}
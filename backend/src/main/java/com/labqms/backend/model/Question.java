@@ -1,10 +1,15 @@
 package com.labqms.backend.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.List;
 
 @Entity
 @Table(name = "questions")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "question")
 public class Question {
     @Id
     private String id;
@@ -12,7 +17,10 @@ public class Question {
     @Column(columnDefinition = "TEXT", nullable = false)
     private String text;
     
+    // Options of a whole page of questions come back in one query instead of one per question
     @ElementCollection
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "question.options")
     @CollectionTable(name = "question_options", joinColumns = @JoinColumn(name = "question_id"))
     @Column(name = "option_text")
     private List<String> options;
@@ -0,0 +1,110 @@
+package com.labqms.backend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Read model of a {@link Question} as the paper endpoints return it, detached from JPA. */
+public class QuestionView {
+    private String id;
+    private String text;
+    private List<String> options;
+    private Integer correctAnswerIndex;
+    private String answerKey;
+    private Difficulty difficulty;
+    private String topic;
+    private QuestionType type;
+    private CodeLanguage language;
+    private Integer marks;
+    private String title;
+    private String description;
+    private String inputFormat;
+    private String outputFormat;
+    private String constraints;
+    private String sampleInput;
+    private String sampleOutput;
+    private String explanation;
+    private String markingScheme;
+
+    public QuestionView() {}
+
+    public static QuestionView from(Question question) {
+        QuestionView view = new QuestionView();
+        view.id = question.getId();
+        view.text = question.getText();
+        view.options = question.getOptions() == null ? null : new ArrayList<>(question.getOptions());
+        view.correctAnswerIndex = question.getCorrectAnswerIndex();
+        view.answerKey = question.getAnswerKey();
+        view.difficulty = question.getDifficulty();
+        view.topic = question.getTopic();
+        view.type = question.getType();
+        view.language = question.getLanguage();
+        view.marks = question.getMarks();
+        view.title = question.getTitle();
+        view.description = question.getDescription();
+        view.inputFormat = question.getInputFormat();
+        view.outputFormat = question.getOutputFormat();
+        view.constraints = question.getConstraints();
+        view.sampleInput = question.getSampleInput();
+        view.sampleOutput = question.getSampleOutput();
+        view.explanation = question.getExplanation();
+        view.markingScheme = question.getMarkingScheme();
+        return view;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public List<String> getOptions() { return options; }
+    public void setOptions(List<String> options) { this.options = options; }
+
+    public Integer getCorrectAnswerIndex() { return correctAnswerIndex; }
+    public void setCorrectAnswerIndex(Integer correctAnswerIndex) { this.correctAnswerIndex = correctAnswerIndex; }
+
+    public String getAnswerKey() { return answerKey; }
+    public void setAnswerKey(String answerKey) { this.answerKey = answerKey; }
+
+    public Difficulty getDifficulty() { return difficulty; }
+    public void setDifficulty(Difficulty difficulty) { this.difficulty = difficulty; }
+
+    public String getTopic() { return topic; }
+    public void setTopic(String topic) { this.topic = topic; }
+
+    public QuestionType getType() { return type; }
+    public void setType(QuestionType type) { this.type = type; }
+
+    public CodeLanguage getLanguage() { return language; }
+    public void setLanguage(CodeLanguage language) { this.language = language; }
+
+    public Integer getMarks() { return marks; }
+    public void setMarks(Integer marks) { this.marks = marks; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public String getInputFormat() { return inputFormat; }
+    public void setInputFormat(String inputFormat) { this.inputFormat = inputFormat; }
+
+    public String getOutputFormat() { return outputFormat; }
+    public void setOutputFormat(String outputFormat) { this.outputFormat = outputFormat; }
+
+    public String getConstraints() { return constraints; }
+    public void setConstraints(String constraints) { this.constraints = constraints; }
+
+    public String getSampleInput() { return sampleInput; }
+    public void setSampleInput(String sampleInput) { this.sampleInput = sampleInput; }
+
+    public String getSampleOutput() { return sampleOutput; }
+    public void setSampleOutput(String sampleOutput) { this.sampleOutput = sampleOutput; }
+
+    public String getExplanation() { return explanation; }
+    public void setExplanation(String explanation) { this.explanation = explanation; }
+
+    public String getMarkingScheme() { return markingScheme; }
+    public void setMarkingScheme(String markingScheme) { this.markingScheme = markingScheme; }
+}
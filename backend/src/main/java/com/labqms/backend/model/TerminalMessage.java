@@ -4,6 +4,7 @@ public class TerminalMessage {
     private String type; // "output" or "status"
     private String content;
     private Integer exitCode;
+    private Long seq; // position in the session's scrollback, for resuming after a reconnect
 
     public TerminalMessage() {
     }
@@ -38,6 +39,14 @@ public class TerminalMessage {
         this.exitCode = exitCode;
     }
 
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
     public static TerminalMessage output(String content) {
         return new TerminalMessage("output", content, null);
     }
@@ -1,11 +1,17 @@
 package com.labqms.backend.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "tests")
+@Table(name = "tests", indexes = {
+    // Keyset pagination of the results list, overall and per student / per paper
+    @Index(name = "idx_tests_submitted", columnList = "submittedAt, id"),
+    @Index(name = "idx_tests_student_submitted", columnList = "studentId, submittedAt, id"),
+    @Index(name = "idx_tests_paper_submitted", columnList = "paper_id, submittedAt, id")
+})
 public class Test {
     @Id
     private String id;
@@ -21,6 +27,7 @@ public class Test {
     private String studentId;
     
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "test_answers", joinColumns = @JoinColumn(name = "test_id"))
     @Column(name = "answer_text", columnDefinition = "LONGTEXT")
     private List<String> answers;
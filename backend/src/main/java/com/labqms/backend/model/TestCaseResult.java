@@ -0,0 +1,70 @@
+package com.labqms.backend.model;
+
+public class TestCaseResult {
+    private int index;
+    private ExecutionStatus status;
+    private String stdout;
+    private String stderr;
+    private int exitCode;
+    private boolean timedOut;
+    private boolean outputTruncated;
+    private long runMillis;
+    private long cpuUserMillis;
+    private long cpuSystemMillis;
+    private long peakMemoryKb;
+    private Boolean passed; // null when no expected output was given
+
+    public TestCaseResult() {
+    }
+
+    public TestCaseResult(int index, ExecutionResult result, Boolean passed) {
+        this.index = index;
+        this.status = result.getStatus();
+        this.stdout = result.getStdout();
+        this.stderr = result.getStderr();
+        this.exitCode = result.getExitCode();
+        this.timedOut = result.isTimedOut();
+        this.outputTruncated = result.isOutputTruncated();
+        this.runMillis = result.getRunMillis();
+        this.cpuUserMillis = result.getCpuUserMillis();
+        this.cpuSystemMillis = result.getCpuSystemMillis();
+        this.peakMemoryKb = result.getPeakMemoryKb();
+        this.passed = passed;
+    }
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public ExecutionStatus getStatus() { return status; }
+    public void setStatus(ExecutionStatus status) { this.status = status; }
+
+    public String getStdout() { return stdout; }
+    public void setStdout(String stdout) { this.stdout = stdout; }
+
+    public String getStderr() { return stderr; }
+    public void setStderr(String stderr) { this.stderr = stderr; }
+
+    public int getExitCode() { return exitCode; }
+    public void setExitCode(int exitCode) { this.exitCode = exitCode; }
+
+    public boolean isTimedOut() { return timedOut; }
+    public void setTimedOut(boolean timedOut) { this.timedOut = timedOut; }
+
+    public boolean isOutputTruncated() { return outputTruncated; }
+    public void setOutputTruncated(boolean outputTruncated) { this.outputTruncated = outputTruncated; }
+
+    public long getRunMillis() { return runMillis; }
+    public void setRunMillis(long runMillis) { this.runMillis = runMillis; }
+
+    public long getCpuUserMillis() { return cpuUserMillis; }
+    public void setCpuUserMillis(long cpuUserMillis) { this.cpuUserMillis = cpuUserMillis; }
+
+    public long getCpuSystemMillis() { return cpuSystemMillis; }
+    public void setCpuSystemMillis(long cpuSystemMillis) { this.cpuSystemMillis = cpuSystemMillis; }
+
+    public long getPeakMemoryKb() { return peakMemoryKb; }
+    public void setPeakMemoryKb(long peakMemoryKb) { this.peakMemoryKb = peakMemoryKb; }
+
+    public Boolean getPassed() { return passed; }
+    public void setPassed(Boolean passed) { this.passed = passed; }
+}
@@ -0,0 +1,56 @@
+package com.labqms.backend.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the test results list: who, which paper, how it went. Answers and AI evaluations
+ * are only in the full {@link Test}, loaded one at a time.
+ */
+public class TestSummary {
+    private String id;
+    private String studentId;
+    private String studentName;
+    private String paperId;
+    private String paperTitle;
+    private double score;
+    private String status;
+    private LocalDateTime submittedAt;
+
+    public TestSummary() {}
+
+    public TestSummary(String id, String studentId, String studentName, String paperId, String paperTitle,
+                       double score, String status, LocalDateTime submittedAt) {
+        this.id = id;
+        this.studentId = studentId;
+        this.studentName = studentName;
+        this.paperId = paperId;
+        this.paperTitle = paperTitle;
+        this.score = score;
+        this.status = status;
+        this.submittedAt = submittedAt;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getStudentId() { return studentId; }
+    public void setStudentId(String studentId) { this.studentId = studentId; }
+
+    public String getStudentName() { return studentName; }
+    public void setStudentName(String studentName) { this.studentName = studentName; }
+
+    public String getPaperId() { return paperId; }
+    public void setPaperId(String paperId) { this.paperId = paperId; }
+
+    public String getPaperTitle() { return paperTitle; }
+    public void setPaperTitle(String paperTitle) { this.paperTitle = paperTitle; }
+
+    public double getScore() { return score; }
+    public void setScore(double score) { this.score = score; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public LocalDateTime getSubmittedAt() { return submittedAt; }
+    public void setSubmittedAt(LocalDateTime submittedAt) { this.submittedAt = submittedAt; }
+}
@@ -0,0 +1,21 @@
+package com.labqms.backend.model;
+
+import java.util.List;
+
+public class TestSummaryPage {
+    private List<TestSummary> items;
+    private String nextCursor; // null on the last page
+
+    public TestSummaryPage() {}
+
+    public TestSummaryPage(List<TestSummary> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TestSummary> getItems() { return items; }
+    public void setItems(List<TestSummary> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
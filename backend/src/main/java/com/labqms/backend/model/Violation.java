@@ -6,8 +6,13 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "violations")
 public class Violation {
+    // Ids reserved per sequence round-trip
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // A pooled sequence rather than IDENTITY, so inserts can go out in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "violation_seq")
+    @SequenceGenerator(name = "violation_seq", sequenceName = "violation_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     
     @Column(nullable = false)
@@ -39,6 +44,12 @@ public class Violation {
         this.timestamp = timestamp;
     }
 
+    // Snapshot for the write-behind buffer, which assigns ids to its own instances only
+    public Violation(Violation other) {
+        this(other.studentId, other.studentName, other.paperId, other.violationType, other.details, other.timestamp);
+        this.id = other.id;
+    }
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -0,0 +1,14 @@
+package com.labqms.backend.repository;
+
+import com.labqms.backend.model.ExecutionRecord;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface ExecutionRecordRepository extends JpaRepository<ExecutionRecord, Long> {
+    List<ExecutionRecord> findByStudentIdOrderByIdDesc(String studentId, Limit limit);
+
+    List<ExecutionRecord> findByStudentIdAndIdLessThanOrderByIdDesc(String studentId, Long beforeId, Limit limit);
+}
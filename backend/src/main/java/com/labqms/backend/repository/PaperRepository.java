@@ -1,9 +1,24 @@
 package com.labqms.backend.repository;
 
 import com.labqms.backend.model.Paper;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 public interface PaperRepository extends JpaRepository<Paper, String> {
     List<Paper> findByTeacherId(String teacherId);
+
+    // Questions are fetch-joined here; their options are both bags, so those come in via @BatchSize
+    @EntityGraph(attributePaths = "questions")
+    List<Paper> findWithQuestionsByTeacherId(String teacherId);
+
+    @EntityGraph(attributePaths = "questions")
+    @Query("select p from Paper p")
+    List<Paper> findAllWithQuestions();
+
+    // Join-by-code only needs the id, the paper itself comes from the snapshot cache
+    @Query("select p.id from Paper p where p.accessCode = :accessCode order by p.id")
+    List<String> findIdsByAccessCode(@Param("accessCode") String accessCode);
 }
@@ -1,10 +1,16 @@
 package com.labqms.backend.repository;
 
 import com.labqms.backend.model.Test;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
+import java.util.Optional;
 
-public interface TestRepository extends JpaRepository<Test, String> {
+public interface TestRepository extends JpaRepository<Test, String>, TestRepositoryCustom {
     List<Test> findByStudentId(String studentId);
     List<Test> findByStudentIdAndPaperId(String studentId, String paperId);
+
+    // The full test with its answers, for the per-test detail view
+    @EntityGraph(attributePaths = {"answers", "paper"})
+    Optional<Test> findWithAnswersById(String id);
 }
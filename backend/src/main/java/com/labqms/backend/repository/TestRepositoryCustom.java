@@ -0,0 +1,15 @@
+package com.labqms.backend.repository;
+
+import com.labqms.backend.model.TestSummary;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TestRepositoryCustom {
+    /**
+     * Submitted tests newest first, ordered by (submittedAt, id) descending. Pass the last row of
+     * the previous page as {@code afterSubmittedAt}/{@code afterId} to get the next one; filters
+     * may be null.
+     */
+    List<TestSummary> findSummaries(String studentId, String paperId,
+                                    LocalDateTime afterSubmittedAt, String afterId, int limit);
+}
@@ -0,0 +1,48 @@
+package com.labqms.backend.repository;
+
+import com.labqms.backend.model.TestSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Built per call so only the filters actually given end up in the WHERE clause and the indexes apply
+public class TestRepositoryImpl implements TestRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<TestSummary> findSummaries(String studentId, String paperId,
+                                           LocalDateTime afterSubmittedAt, String afterId, int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "select new com.labqms.backend.model.TestSummary("
+                        + "t.id, t.studentId, t.studentName, p.id, p.title, t.score, t.status, t.submittedAt) "
+                        + "from Test t join t.paper p where t.submittedAt is not null");
+        if (studentId != null) {
+            jpql.append(" and t.studentId = :studentId");
+        }
+        if (paperId != null) {
+            jpql.append(" and p.id = :paperId");
+        }
+        if (afterSubmittedAt != null) {
+            jpql.append(" and (t.submittedAt < :afterSubmittedAt"
+                    + " or (t.submittedAt = :afterSubmittedAt and t.id < :afterId))");
+        }
+        jpql.append(" order by t.submittedAt desc, t.id desc");
+
+        TypedQuery<TestSummary> query = entityManager.createQuery(jpql.toString(), TestSummary.class);
+        if (studentId != null) {
+            query.setParameter("studentId", studentId);
+        }
+        if (paperId != null) {
+            query.setParameter("paperId", paperId);
+        }
+        if (afterSubmittedAt != null) {
+            query.setParameter("afterSubmittedAt", afterSubmittedAt);
+            query.setParameter("afterId", afterId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
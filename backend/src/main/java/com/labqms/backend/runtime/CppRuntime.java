@@ -0,0 +1,48 @@
+package com.labqms.backend.runtime;
+
+import com.labqms.backend.model.CodeLanguage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CppRuntime extends NativeRuntime {
+
+    @Value("${coderunner.cpp.command:g++}")
+    private String compiler;
+
+    @Value("${coderunner.cpp.flags:-O2 -std=gnu++17 -pipe}")
+    private String flags;
+
+    @Value("${coderunner.native.compile-timeout-ms:20000}")
+    private long compileTimeoutMillis;
+
+    @Override
+    public CodeLanguage getLanguage() {
+        return CodeLanguage.CPP;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "C++";
+    }
+
+    @Override
+    protected String getCompiler() {
+        return compiler;
+    }
+
+    @Override
+    protected String getFlags() {
+        return flags;
+    }
+
+    @Override
+    protected long getCompileTimeoutMillis() {
+        return compileTimeoutMillis;
+    }
+
+    @Override
+    protected String getSourceFileName() {
+        return "main.cpp";
+    }
+}
@@ -0,0 +1,73 @@
+package com.labqms.backend.runtime;
+
+import com.labqms.backend.model.CodeLanguage;
+import com.labqms.backend.model.CompilationResult;
+import com.labqms.backend.model.ExecutionResult;
+import com.labqms.backend.service.JavaCompilerService;
+import com.labqms.backend.service.JavaWorkerPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Component
+public class JavaRuntime implements LanguageRuntime {
+
+    private static final String MAIN_CLASS = "Main";
+
+    @Autowired
+    private JavaCompilerService javaCompilerService;
+
+    @Autowired
+    private JavaWorkerPool javaWorkerPool;
+
+    @Override
+    public CodeLanguage getLanguage() {
+        return CodeLanguage.JAVA;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Java";
+    }
+
+    @Override
+    public String cacheKey(String source) {
+        return javaCompilerService.cacheKey(MAIN_CLASS, source);
+    }
+
+    // Compiled in memory; class files only hit the disk if a run has to fall back to "java Main"
+    @Override
+    public PreparedProgram prepare(String source, Path dir) {
+        return new PreparedProgram(javaCompilerService.compile(MAIN_CLASS, source), dir);
+    }
+
+    @Override
+    public ExecutionResult runWarm(PreparedProgram program, String input, long cpuLimitMillis, long wallLimitMillis,
+                                   int stdoutLimit) {
+        return javaWorkerPool.run(program.getCompilation(), MAIN_CLASS, input, cpuLimitMillis, wallLimitMillis, stdoutLimit);
+    }
+
+    @Override
+    public Process start(PreparedProgram program, Path workDir, boolean interactive) throws IOException {
+        if (interactive) {
+            Process worker = javaWorkerPool.startInteractive(program.getCompilation(), MAIN_CLASS);
+            if (worker != null) return worker;
+        }
+
+        // No warm worker free, start a JVM the slow way. Batch cases share the class files.
+        Path classDir = program.getDir();
+        CompilationResult compilation = program.getCompilation();
+        synchronized (compilation) {
+            if (!Files.exists(classDir.resolve(MAIN_CLASS + ".class"))) {
+                Files.createDirectories(classDir);
+                javaCompilerService.writeClasses(compilation, classDir);
+            }
+        }
+        return new ProcessBuilder("java", "-cp", classDir.toAbsolutePath().toString(), MAIN_CLASS)
+                .directory(workDir.toFile())
+                .start();
+    }
+}
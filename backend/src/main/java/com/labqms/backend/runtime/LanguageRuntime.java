@@ -0,0 +1,44 @@
+package com.labqms.backend.runtime;
+
+import com.labqms.backend.model.CodeLanguage;
+import com.labqms.backend.model.ExecutionResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * How one language gets from source code to a running program. The runners only talk to this
+ * interface; adding a language means adding a runtime bean, not another branch in the runners.
+ */
+public interface LanguageRuntime {
+
+    CodeLanguage getLanguage();
+
+    /** Name shown to students, e.g. in timeout messages. */
+    String getDisplayName();
+
+    /** Identifies the build output: two sources with the same key compile to the same program. */
+    String cacheKey(String source);
+
+    /**
+     * Compiles the source, or only stages it for interpreted languages, into {@code dir}.
+     * Code that doesn't compile is a failed compilation in the returned program, not an exception.
+     */
+    PreparedProgram prepare(String source, Path dir) throws IOException;
+
+    /**
+     * Starts one run of a successfully prepared program with {@code workDir} as working directory.
+     * Interactive runs ask for unbuffered output where the language allows it.
+     */
+    Process start(PreparedProgram program, Path workDir, boolean interactive) throws IOException;
+
+    /**
+     * Runs the program on an already warm process, if the runtime keeps one, keeping up to
+     * {@code stdoutLimit} bytes of stdout. Returns null when it doesn't, the caller then falls
+     * back to {@link #start}.
+     */
+    default ExecutionResult runWarm(PreparedProgram program, String input, long cpuLimitMillis, long wallLimitMillis,
+                                    int stdoutLimit) {
+        return null;
+    }
+}
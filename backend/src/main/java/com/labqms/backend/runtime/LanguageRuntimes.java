@@ -0,0 +1,30 @@
+package com.labqms.backend.runtime;
+
+import com.labqms.backend.model.CodeLanguage;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up the runtime for a language name sent by the client ("java", "PYTHON", "cpp", ...).
+ */
+@Component
+public class LanguageRuntimes {
+
+    private final Map<CodeLanguage, LanguageRuntime> runtimes = new EnumMap<>(CodeLanguage.class);
+
+    public LanguageRuntimes(List<LanguageRuntime> available) {
+        for (LanguageRuntime runtime : available) {
+            runtimes.put(runtime.getLanguage(), runtime);
+        }
+    }
+
+    // Unknown or missing languages have always been run as Java
+    public LanguageRuntime get(String language) {
+        CodeLanguage codeLanguage = language == null ? null : CodeLanguage.fromValue(language);
+        LanguageRuntime runtime = codeLanguage == null ? null : runtimes.get(codeLanguage);
+        return runtime != null ? runtime : runtimes.get(CodeLanguage.JAVA);
+    }
+}
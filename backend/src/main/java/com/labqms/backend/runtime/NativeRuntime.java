@@ -0,0 +1,172 @@
+package com.labqms.backend.runtime;
+
+import com.labqms.backend.model.CompilationDiagnostic;
+import com.labqms.backend.model.CompilationResult;
+import com.labqms.backend.service.CompilationCache;
+import com.labqms.backend.service.Workspace;
+import com.labqms.backend.service.WorkspaceManager;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runtimes for languages built by a gcc-style compiler into a native executable. Built binaries
+ * go through the {@link CompilationCache} keyed by compiler version, flags and source, so an
+ * unchanged re-run only copies the binary instead of invoking the compiler.
+ */
+public abstract class NativeRuntime implements LanguageRuntime {
+
+    private static final String EXECUTABLE = "main";
+
+    // gcc / clang style: "main.c:3:5: error: expected ';' before '}' token"
+    private static final Pattern DIAGNOSTIC = Pattern.compile("^([^:\\s]+):(\\d+):(\\d+): (fatal error|error|warning|note): (.*)$");
+
+    @Autowired
+    private CompilationCache compilationCache;
+
+    @Autowired
+    private WorkspaceManager workspaceManager;
+
+    private volatile String toolchainVersion;
+
+    private volatile Boolean stdbufAvailable;
+
+    protected abstract String getCompiler();
+
+    protected abstract String getFlags();
+
+    protected abstract long getCompileTimeoutMillis();
+
+    protected abstract String getSourceFileName();
+
+    @Override
+    public String cacheKey(String source) {
+        return CompilationCache.keyOf(getLanguage().name(), toolchainVersion() + " " + getFlags(), EXECUTABLE, source);
+    }
+
+    @Override
+    public PreparedProgram prepare(String source, Path dir) throws IOException {
+        CompilationResult compilation = compilationCache.getOrCompile(cacheKey(source), () -> compileUncached(source));
+        if (compilation.isSuccess()) {
+            Files.createDirectories(dir);
+            Path executable = dir.resolve(EXECUTABLE);
+            Files.write(executable, compilation.getClasses().get(EXECUTABLE));
+            if (!executable.toFile().setExecutable(true, true)) {
+                throw new IOException("Could not mark " + executable + " executable");
+            }
+        }
+        return new PreparedProgram(compilation, dir);
+    }
+
+    @Override
+    public Process start(PreparedProgram program, Path workDir, boolean interactive) throws IOException {
+        String executable = program.getDir().resolve(EXECUTABLE).toAbsolutePath().toString();
+        // stdio fully buffers a pipe, so prompts would only show up after the program exits
+        List<String> command = interactive && isStdbufAvailable()
+                ? List.of("stdbuf", "-o0", "-e0", executable)
+                : List.of(executable);
+        return new ProcessBuilder(command).directory(workDir.toFile()).start();
+    }
+
+    private CompilationResult compileUncached(String source) {
+        if (toolchainVersion() == null) {
+            return CompilationResult.failure(getCompiler() + " is not available on this server.");
+        }
+
+        long start = System.nanoTime();
+        try (Workspace workspace = workspaceManager.acquire()) {
+            Path buildDir = workspace.getDir();
+            Files.writeString(buildDir.resolve(getSourceFileName()), source);
+
+            List<String> command = new ArrayList<>();
+            command.add(getCompiler());
+            command.addAll(Arrays.asList(getFlags().trim().split("\\s+")));
+            command.addAll(List.of("-fdiagnostics-color=never", "-o", EXECUTABLE, getSourceFileName(), "-lm"));
+
+            // Diagnostics go to a file so a compiler that hangs can't also hang us on a pipe read
+            Path log = buildDir.resolve("compile.log");
+            Process compiler = new ProcessBuilder(command)
+                    .directory(buildDir.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(log.toFile())
+                    .start();
+            compiler.getOutputStream().close();
+            if (!compiler.waitFor(getCompileTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                // gcc/g++ is a driver; the hung cc1/as/ld below it would otherwise outlive it
+                compiler.descendants().forEach(ProcessHandle::destroyForcibly);
+                compiler.destroyForcibly();
+                return CompilationResult.failure("Compilation timed out.");
+            }
+
+            String output = new String(Files.readAllBytes(log), StandardCharsets.UTF_8);
+            boolean success = compiler.exitValue() == 0;
+            List<CompilationDiagnostic> diagnostics = parseDiagnostics(output, success);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            Map<String, byte[]> artifacts = success ? Map.of(EXECUTABLE, Files.readAllBytes(buildDir.resolve(EXECUTABLE))) : null;
+            return new CompilationResult(success, artifacts, diagnostics, elapsed);
+
+        } catch (IOException e) {
+            return CompilationResult.failure("Internal compiler error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompilationResult.failure("Compilation was interrupted.");
+        }
+    }
+
+    private static List<CompilationDiagnostic> parseDiagnostics(String output, boolean success) {
+        List<CompilationDiagnostic> diagnostics = new ArrayList<>();
+        boolean hasError = false;
+        for (String line : output.split("\n")) {
+            Matcher m = DIAGNOSTIC.matcher(line);
+            if (!m.matches()) continue;
+            String kind = m.group(4).equals("note") ? "NOTE" : m.group(4).equals("warning") ? "WARNING" : "ERROR";
+            hasError |= kind.equals("ERROR");
+            diagnostics.add(new CompilationDiagnostic(kind, m.group(1),
+                    Long.parseLong(m.group(2)), Long.parseLong(m.group(3)), m.group(5)));
+        }
+        // Linker failures ("undefined reference to ...") carry no file:line:column
+        if (!success && !hasError) {
+            diagnostics.add(new CompilationDiagnostic("ERROR", null, -1, -1, output.strip()));
+        }
+        return diagnostics;
+    }
+
+    private String toolchainVersion() {
+        if (toolchainVersion == null) {
+            toolchainVersion = probe(getCompiler(), "-dumpfullversion", "-dumpversion");
+        }
+        return toolchainVersion;
+    }
+
+    private boolean isStdbufAvailable() {
+        if (stdbufAvailable == null) {
+            stdbufAvailable = probe("stdbuf", "--version") != null;
+        }
+        return stdbufAvailable;
+    }
+
+    // First line of the command's output, or null if it can't be run
+    private static String probe(String... command) {
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).strip();
+            if (!process.waitFor(5, TimeUnit.SECONDS) || process.exitValue() != 0) return null;
+            return output.lines().findFirst().orElse("");
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.labqms.backend.runtime;
+
+import com.labqms.backend.model.CompilationResult;
+
+import java.nio.file.Path;
+
+/**
+ * A program ready to run: the compilation outcome plus the directory its files were staged in.
+ */
+public class PreparedProgram {
+    private final CompilationResult compilation;
+    private final Path dir;
+
+    public PreparedProgram(CompilationResult compilation, Path dir) {
+        this.compilation = compilation;
+        this.dir = dir;
+    }
+
+    public CompilationResult getCompilation() { return compilation; }
+
+    public Path getDir() { return dir; }
+
+    public boolean isSuccess() { return compilation.isSuccess(); }
+
+    // Interpreted languages have nothing to compile
+    public static PreparedProgram staged(Path dir) {
+        return new PreparedProgram(new CompilationResult(true, null, java.util.List.of(), 0), dir);
+    }
+}
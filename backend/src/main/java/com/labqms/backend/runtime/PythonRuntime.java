@@ -0,0 +1,60 @@
+package com.labqms.backend.runtime;
+
+import com.labqms.backend.model.CodeLanguage;
+import com.labqms.backend.service.CompilationCache;
+import com.labqms.backend.service.PythonForkServer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Component
+public class PythonRuntime implements LanguageRuntime {
+
+    private static final String SCRIPT = "script.py";
+
+    @Autowired
+    private PythonForkServer pythonForkServer;
+
+    @Value("${coderunner.python.command:python}")
+    private String pythonCommand;
+
+    @Override
+    public CodeLanguage getLanguage() {
+        return CodeLanguage.PYTHON;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Python";
+    }
+
+    @Override
+    public String cacheKey(String source) {
+        return CompilationCache.keyOf("PYTHON", pythonCommand, SCRIPT, source);
+    }
+
+    @Override
+    public PreparedProgram prepare(String source, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve(SCRIPT), source);
+        return PreparedProgram.staged(dir);
+    }
+
+    @Override
+    public Process start(PreparedProgram program, Path workDir, boolean interactive) throws IOException {
+        Path script = program.getDir().resolve(SCRIPT);
+        // Forked from the warm fork server when possible, its children are always unbuffered
+        Process forked = pythonForkServer.spawn(script, workDir);
+        if (forked != null) return forked;
+
+        ProcessBuilder pb = interactive
+                ? new ProcessBuilder(pythonCommand, "-u", script.toAbsolutePath().toString()) // -u for unbuffered output
+                : new ProcessBuilder(pythonCommand, script.toAbsolutePath().toString());
+        pb.directory(workDir.toFile());
+        return pb.start();
+    }
+}
@@ -3,7 +3,9 @@ package com.labqms.backend.service;
 import com.labqms.backend.model.BankQuestion;
 import com.labqms.backend.repository.BankQuestionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,21 +16,34 @@ public class BankQuestionService {
     @Autowired
     private BankQuestionRepository bankQuestionRepository;
 
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    // Options are loaded before returning; with open-in-view off nothing lazy survives the transaction
+    @Transactional(readOnly = true)
     public List<BankQuestion> getAllQuestions() {
-        return bankQuestionRepository.findAll();
+        List<BankQuestion> questions = bankQuestionRepository.findAll();
+        questions.forEach(q -> Hibernate.initialize(q.getOptions()));
+        return questions;
     }
 
     public BankQuestion addQuestion(BankQuestion question) {
         if (question.getId() == null || question.getId().isEmpty()) {
             question.setId("bq-" + java.util.UUID.randomUUID().toString());
         }
-        return bankQuestionRepository.save(question);
+        BankQuestion saved = bankQuestionRepository.save(question);
+        entityCacheService.evictBankQuestion(saved.getId());
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     public Optional<BankQuestion> getQuestionById(String id) {
-        return bankQuestionRepository.findById(id);
+        Optional<BankQuestion> question = bankQuestionRepository.findById(id);
+        question.ifPresent(q -> Hibernate.initialize(q.getOptions()));
+        return question;
     }
     
+    @Transactional
     public BankQuestion updateQuestion(String id, BankQuestion questionDetails) {
         BankQuestion question = bankQuestionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Question not found with id: " + id));
@@ -52,10 +67,12 @@ public class BankQuestionService {
         question.setExplanation(questionDetails.getExplanation());
         question.setMarkingScheme(questionDetails.getMarkingScheme());
         
+        entityCacheService.evictBankQuestion(id);
         return bankQuestionRepository.save(question);
     }
 
     public void deleteQuestion(String id) {
         bankQuestionRepository.deleteById(id);
+        entityCacheService.evictBankQuestion(id);
     }
 }
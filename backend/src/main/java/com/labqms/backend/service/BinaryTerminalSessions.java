@@ -0,0 +1,81 @@
+package com.labqms.backend.service;
+
+import com.labqms.backend.model.TerminalMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Terminals connected over the raw binary WebSocket, by student. They get the same messages as
+ * the STOMP topic, encoded with {@link TerminalFrameCodec}.
+ */
+@Service
+public class BinaryTerminalSessions {
+
+    @Autowired
+    private OutboundSessionPolicies outboundSessionPolicies;
+
+    // A client that falls behind loses its oldest frames (it can resume from the scrollback), one stuck writing is disconnected
+    @Value("${coderunner.terminal.binary.send-time-limit-ms:10000}")
+    private int sendTimeLimitMillis;
+
+    @Value("${coderunner.terminal.binary.buffer-size-limit-bytes:1048576}")
+    private int bufferSizeLimitBytes;
+
+    private final Map<String, Set<WebSocketSession>> byStudent = new ConcurrentHashMap<>();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    /** Wraps the connection in its own outbound buffer, frames from several threads are sent one at a time. */
+    public WebSocketSession add(String studentId, WebSocketSession session) {
+        WebSocketSession buffered = outboundSessionPolicies.wrap(session, sendTimeLimitMillis, bufferSizeLimitBytes,
+                frame -> null, destination -> OutboundPolicy.DROP_OLDEST);
+        byStudent.computeIfAbsent(studentId, id -> ConcurrentHashMap.newKeySet()).add(buffered);
+        return buffered;
+    }
+
+    public void remove(String studentId, WebSocketSession session) {
+        outboundSessionPolicies.release(session);
+        byStudent.computeIfPresent(studentId, (id, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    void send(String studentId, TerminalMessage message) {
+        Set<WebSocketSession> sessions = byStudent.get(studentId);
+        if (sessions == null) return;
+        for (WebSocketSession session : sessions) {
+            send(session, message);
+        }
+    }
+
+    public void send(WebSocketSession session, TerminalMessage message) {
+        BinaryMessage frame = new BinaryMessage(TerminalFrameCodec.encode(message));
+        int length = frame.getPayloadLength();
+        try {
+            session.sendMessage(frame);
+            framesSent.incrementAndGet();
+            bytesSent.addAndGet(length);
+        } catch (IOException | IllegalStateException e) {
+            // Connection closed or over its send limits, closing it ends up in remove()
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long frames = framesSent.get();
+        return Map.of(
+                "connectedStudents", byStudent.size(),
+                "framesSent", frames,
+                "bytesSent", bytesSent.get(),
+                "bytesPerFrame", frames == 0 ? 0.0 : (double) bytesSent.get() / frames);
+    }
+}
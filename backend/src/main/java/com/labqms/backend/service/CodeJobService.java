@@ -0,0 +1,86 @@
+package com.labqms.backend.service;
+
+import com.labqms.backend.model.CodeJob;
+import com.labqms.backend.model.ExecutionResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Asynchronous front end for CodeRunnerService. A submitted job gets an id straight away; the
+ * result can then be polled, long-polled, or picked up from /topic/code-jobs/{studentId}.
+ */
+@Service
+public class CodeJobService {
+
+    // Finished jobs are kept this long for clients that poll late
+    private static final long RETENTION_MINUTES = 10;
+
+    @Autowired
+    private CodeRunnerService codeRunnerService;
+
+    @Autowired
+    private ExecutionScheduler executionScheduler;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ExecutionRecordService executionRecordService;
+
+    private final Map<String, CodeJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * @throws ExecutionScheduler.RejectedException when the scheduler can't take the job
+     */
+    public CodeJob submit(String studentId, String code, String language, String input) {
+        purgeExpired();
+
+        CodeJob job = new CodeJob("job-" + UUID.randomUUID(), studentId, language, LocalDateTime.now());
+        jobs.put(job.getId(), job);
+        try {
+            schedule(job, code, input);
+        } catch (ExecutionScheduler.RejectedException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<CodeJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void schedule(CodeJob job, String code, String input) {
+        String studentId = job.getStudentId();
+        String language = job.getLanguage();
+        executionScheduler.submit(studentId, () -> {
+            job.setStatus("RUNNING");
+            ExecutionResult result = codeRunnerService.execute(code, language, input);
+            executionRecordService.record(studentId, language, "RUN", result);
+            return result;
+        }).whenComplete((run, error) -> {
+            ExecutionResult result = error != null
+                    ? ExecutionResult.internalError(error.getMessage())
+                    : run.getResult();
+            if (run != null) {
+                result.setQueueWaitMillis(run.getQueueWaitMillis());
+            }
+            job.setResult(result);
+            job.setStatus("COMPLETED");
+            job.getCompletion().complete(result);
+            messagingTemplate.convertAndSend("/topic/code-jobs/" + studentId, job);
+        });
+    }
+
+    private void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(RETENTION_MINUTES);
+        jobs.values().removeIf(job -> job.getCompletion().isDone() && job.getSubmittedAt().isBefore(cutoff));
+    }
+}
@@ -1,157 +1,338 @@
 package com.labqms.backend.service;
 
+import com.labqms.backend.model.*;
+import com.labqms.backend.runtime.LanguageRuntime;
+import com.labqms.backend.runtime.LanguageRuntimes;
+import com.labqms.backend.runtime.PreparedProgram;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.io.*;
 import java.nio.file.*;
-import java.util.concurrent.TimeUnit;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class CodeRunnerService {
 
-    public String runCode(String code, String language, String input) {
-        if ("PYTHON".equalsIgnoreCase(language)) {
-            return runPythonCode(code, input);
-        } else {
-            return runJavaCode(code, input);
-        }
-    }
+    private static final long SAMPLE_INTERVAL_MILLIS = 20;
+    private static final long KILL_WAIT_MILLIS = 1000;
 
-    public String runPythonCode(String code, String input) {
-        String sessionId = UUID.randomUUID().toString().substring(0, 8);
-        Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"), "smartproctor", sessionId);
-        
-        try {
-            Files.createDirectories(tempDir);
-            Path pythonFile = tempDir.resolve("script.py");
-            Files.writeString(pythonFile, code);
+    @Autowired
+    private LanguageRuntimes languageRuntimes;
 
-            // Run Python
-            ProcessBuilder pb = new ProcessBuilder("python", "script.py");
-            pb.directory(tempDir.toFile());
-            Process process = pb.start();
+    @Autowired
+    private WorkspaceManager workspaceManager;
 
-            // Handle Input if present
-            if (input != null && !input.isEmpty()) {
-                try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()))) {
-                    writer.write(input);
-                    writer.flush();
-                }
-            } else {
-                process.getOutputStream().close();
-            }
+    // Stream drainers and stdin feeders block on pipes, so they run on the process I/O threads
+    @Autowired
+    private ProcessIoExecutor processIoExecutor;
 
-            // Wait for process to complete
-            boolean finished = process.waitFor(5, TimeUnit.SECONDS);
-            if (!finished) {
-                process.destroyForcibly();
-            }
+    // Parallel batches hold one scheduler slot per case they run at once, see batchWidth
+    @Autowired
+    private ExecutionScheduler executionScheduler;
 
-            // Read output after process finishes or is killed
-            String output = readStream(process.getInputStream());
-            String errorOutput = readStream(process.getErrorStream());
+    // CPU time is what a run is judged on; the wall clock limit only catches programs stuck waiting
+    @Value("${coderunner.limits.cpu-millis:5000}")
+    private long cpuLimitMillis;
 
-            if (!finished) {
-                return "Execution Timeout: Python code took too long to run.\nOutput so far:\n" + output;
-            }
+    @Value("${coderunner.limits.wall-millis:15000}")
+    private long wallLimitMillis;
+
+    @Value("${coderunner.batch.max-test-cases:50}")
+    private int maxTestCases;
+
+    @Value("${coderunner.batch.parallelism:2}")
+    private int batchParallelism;
+
+    @Value("${coderunner.output.memory-limit-bytes:65536}")
+    private int outputMemoryLimit;
+
+    @Value("${coderunner.output.spill-enabled:true}")
+    private boolean spillEnabled;
+
+    @Value("${coderunner.output.spill-limit-bytes:8388608}")
+    private long spillLimit;
+
+    private ExecutorService batchExecutor;
+
+    public String runCode(String code, String language, String input) {
+        return format(execute(code, language, input), language);
+    }
+
+    public ExecutionResult execute(String code, String language, String input) {
+        LanguageRuntime runtime = languageRuntimes.get(language);
 
-            if (process.exitValue() != 0) {
-                return "Runtime Error:\n" + errorOutput;
+        try (Workspace workspace = workspaceManager.acquire()) {
+            PreparedProgram program = runtime.prepare(code, workspace.getDir());
+            if (!program.isSuccess()) {
+                return ExecutionResult.compilationError(program.getCompilation());
             }
 
-            return output.isEmpty() ? "Execution successful (no output)." : output;
+            ExecutionResult result = run(runtime, program, workspace, workspace.getDir(), input, outputMemoryLimit);
+            result.setCompileMillis(program.getCompilation().getCompileTimeMillis());
+            return result;
 
         } catch (Exception e) {
-            return "Internal System Error: " + e.getMessage();
-        } finally {
-            cleanup(tempDir);
+            return ExecutionResult.internalError(e.getMessage());
         }
     }
 
+    public String format(ExecutionResult result, String language) {
+        return formatResult(result, languageRuntimes.get(language).getDisplayName());
+    }
+
+    public String runPythonCode(String code, String input) {
+        return runCode(code, "PYTHON", input);
+    }
+
     public String runJavaCode(String code, String input) {
-        String sessionId = UUID.randomUUID().toString().substring(0, 8);
-        Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"), "smartproctor", sessionId);
-        
-        try {
-            Files.createDirectories(tempDir);
-            Path javaFile = tempDir.resolve("Main.java");
-            Files.writeString(javaFile, code);
-
-            // Compile
-            ProcessBuilder compilePb = new ProcessBuilder("javac", "Main.java");
-            compilePb.directory(tempDir.toFile());
-            Process compileProcess = compilePb.start();
-            
-            String compileError = readStream(compileProcess.getErrorStream());
-            boolean success = compileProcess.waitFor(10, TimeUnit.SECONDS);
-
-            if (!success || compileProcess.exitValue() != 0) {
-                return "Compilation Error:\n" + compileError;
+        return runCode(code, "JAVA", input);
+    }
+
+    /**
+     * How many test cases of a batch run at the same time: one, or for a parallel batch up to
+     * batch.parallelism but never more than the scheduler's concurrency. Callers schedule the
+     * batch with this many slots.
+     */
+    public int batchWidth(List<TestCase> testCases, boolean parallel) {
+        if (!parallel || testCases == null || testCases.size() < 2) return 1;
+        return Math.max(1, Math.min(Math.min(batchParallelism, testCases.size()), executionScheduler.getMaxConcurrent()));
+    }
+
+    /**
+     * Compiles once and runs the program against every test case, in order or in parallel.
+     */
+    public BatchExecutionResult runBatch(String code, String language, List<TestCase> testCases, boolean parallel) {
+        if (testCases == null || testCases.isEmpty()) {
+            return BatchExecutionResult.failed(ExecutionResult.internalError("No test cases given"));
+        }
+        if (testCases.size() > maxTestCases) {
+            return BatchExecutionResult.failed(ExecutionResult.internalError("At most " + maxTestCases + " test cases per batch"));
+        }
+
+        long start = System.nanoTime();
+        try (Workspace workspace = workspaceManager.acquire()) {
+            Path tempDir = workspace.getDir();
+            LanguageRuntime runtime = languageRuntimes.get(language);
+            PreparedProgram program = runtime.prepare(code, tempDir);
+            if (!program.isSuccess()) {
+                return BatchExecutionResult.failed(ExecutionResult.compilationError(program.getCompilation()));
             }
 
-            // Run
-            ProcessBuilder runPb = new ProcessBuilder("java", "Main");
-            runPb.directory(tempDir.toFile());
-            Process runProcess = runPb.start();
+            BatchExecutionResult batch = new BatchExecutionResult();
+            batch.setCompileMillis(program.getCompilation().getCompileTimeMillis());
+            // Each case gets its own working directory, the fork server's FIFOs live there
+            CaseRunner runner = (index, testCase) -> {
+                Path caseDir = Files.createDirectories(tempDir.resolve("case-" + index));
+                return run(runtime, program, workspace, caseDir, testCase.getInput(), stdoutLimitFor(testCase));
+            };
 
-            // Handle Input if present
-            if (input != null && !input.isEmpty()) {
-                try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(runProcess.getOutputStream()))) {
-                    writer.write(input);
-                    writer.flush();
+            int width = batchWidth(testCases, parallel);
+            List<TestCaseResult> results = width > 1
+                    ? runParallel(runner, testCases, width)
+                    : runSequential(runner, testCases);
+
+            batch.setStatus(ExecutionStatus.SUCCESS);
+            batch.setResults(results);
+            batch.setPassedCount((int) results.stream().filter(r -> Boolean.TRUE.equals(r.getPassed())).count());
+            batch.setTotalMillis((System.nanoTime() - start) / 1_000_000);
+            return batch;
+
+        } catch (Exception e) {
+            return BatchExecutionResult.failed(ExecutionResult.internalError(e.getMessage()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (batchExecutor != null) {
+            batchExecutor.shutdownNow();
+        }
+    }
+
+    private ExecutionResult run(LanguageRuntime runtime, PreparedProgram program, Workspace workspace, Path workDir,
+                                String input, int stdoutLimit) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        // Prefer a warm process (Java worker pool); otherwise start the program fresh
+        ExecutionResult result = runtime.runWarm(program, input, cpuLimitMillis, wallLimitMillis, stdoutLimit);
+        if (result == null) {
+            Process process = runtime.start(program, workDir, false);
+            boolean completed = false;
+            try {
+                workspace.watch(process);
+                result = runProcess(process, input, workspace, workDir, stdoutLimit);
+                completed = true;
+            } finally {
+                if (!completed) {
+                    // No I/O thread free or the run was cancelled: nothing limits the program any more,
+                    // so stop it before its workspace goes back to the pool
+                    killAndWait(process);
                 }
-            } else {
-                runProcess.getOutputStream().close();
             }
-
-            // Wait for process
-            boolean runSuccess = runProcess.waitFor(5, TimeUnit.SECONDS);
-            if (!runSuccess) {
-                runProcess.destroyForcibly();
+            if (workspace.isQuotaExceeded()) {
+                result.setStatus(ExecutionStatus.RUNTIME_ERROR);
+                result.setStderr(result.getStderr() + "\nDisk quota exceeded: programs may write at most "
+                        + workspace.getQuotaBytes() / (1024 * 1024) + " MB of files.");
             }
+        }
+        result.setRunMillis((System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
 
-            // Read output
-            String output = readStream(runProcess.getInputStream());
-            String errorOutput = readStream(runProcess.getErrorStream());
+    private ExecutionResult runProcess(Process process, String input, Workspace workspace, Path workDir,
+                                       int stdoutLimit) throws IOException, InterruptedException {
+        // Drain both streams from the start so a program that prints a lot never blocks on a full pipe
+        String spillName = workspace.getDir().equals(workDir) ? "" : workDir.getFileName() + "-";
+        Path stdoutSpill = spillEnabled ? workspace.spillFile(spillName + "stdout.spill") : null;
+        Path stderrSpill = spillEnabled ? workspace.spillFile(spillName + "stderr.spill") : null;
+        ExecutorService ioExecutor = processIoExecutor.getExecutor();
+        try (OutputCapture stdout = OutputCapture.start(process.getInputStream(), outputMemoryLimit, spillLimit, stdoutSpill, ioExecutor);
+             OutputCapture stderr = OutputCapture.start(process.getErrorStream(), outputMemoryLimit, spillLimit, stderrSpill, ioExecutor)) {
 
-            if (!runSuccess) {
-                return "Execution Timeout: Java code took too long to run.\nOutput so far:\n" + output;
-            }
+            // Feed stdin from the side as well, a program may not read it all before writing
+            Future<?> feeder = ioExecutor.submit(() -> writeInput(process, input));
 
-            if (runProcess.exitValue() != 0) {
-                return "Runtime Error:\n" + errorOutput;
+            // Wait for process to complete, sampling its CPU time and memory on the way
+            ProcessMeter meter = new ProcessMeter(process.pid());
+            long wallDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(wallLimitMillis);
+            boolean finished;
+            while (!(finished = process.waitFor(SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS))) {
+                meter.sample();
+                if (meter.getCpuMillis() > cpuLimitMillis || System.nanoTime() > wallDeadline) {
+                    process.destroyForcibly();
+                    break;
+                }
             }
+            stdout.await(1000);
+            stderr.await(1000);
+            feeder.cancel(true);
 
-            return output.isEmpty() ? "Execution successful (no output)." : output;
+            ExecutionResult result = new ExecutionResult(stdout.getText(stdoutLimit), stderr.getText(),
+                    finished ? process.exitValue() : -1, !finished);
+            result.setOutputTruncated(stdout.getTotalBytes() > stdoutLimit || stderr.isTruncated());
+            meter.applyTo(result, process);
+            return result;
+        }
+    }
 
-        } catch (Exception e) {
-            return "Internal System Error: " + e.getMessage();
+    private static void killAndWait(Process process) {
+        process.destroyForcibly();
+        boolean interrupted = Thread.interrupted();
+        try {
+            process.waitFor(KILL_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            interrupted = true;
         } finally {
-            cleanup(tempDir);
+            if (interrupted) Thread.currentThread().interrupt();
         }
     }
 
-    private String readStream(InputStream is) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line).append("\n");
+    private void writeInput(Process process, String input) {
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()))) {
+            if (input != null && !input.isEmpty()) {
+                writer.write(input);
             }
+        } catch (IOException e) {
+            // Program exited without reading all of its input
         }
-        return sb.toString();
     }
 
-    private void cleanup(Path dir) {
-        try {
-            if (Files.exists(dir)) {
-                Files.walk(dir)
-                    .sorted((a, b) -> b.compareTo(a))
-                    .map(Path::toFile)
-                    .forEach(File::delete);
+    // Enough of stdout to compare against the expected answer, even past the in-memory limit
+    private int stdoutLimitFor(TestCase testCase) {
+        if (testCase.getExpectedOutput() == null) return outputMemoryLimit;
+        long needed = testCase.getExpectedOutput().getBytes(java.nio.charset.StandardCharsets.UTF_8).length + 1024L;
+        return (int) Math.min(Math.max(outputMemoryLimit, needed), outputMemoryLimit + spillLimit);
+    }
+
+    private List<TestCaseResult> runSequential(CaseRunner runner, List<TestCase> testCases) {
+        List<TestCaseResult> results = new ArrayList<>();
+        for (int i = 0; i < testCases.size(); i++) {
+            results.add(runCase(runner, i, testCases.get(i)));
+        }
+        return results;
+    }
+
+    // width lanes take the next case until none are left; the calling thread is one of them
+    private List<TestCaseResult> runParallel(CaseRunner runner, List<TestCase> testCases, int width) throws InterruptedException {
+        TestCaseResult[] results = new TestCaseResult[testCases.size()];
+        AtomicInteger next = new AtomicInteger();
+        Runnable lane = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < testCases.size()) {
+                results[index] = runCase(runner, index, testCases.get(index));
+            }
+        };
+        List<Future<?>> lanes = new ArrayList<>();
+        for (int i = 1; i < width; i++) {
+            lanes.add(batchExecutor().submit(lane));
+        }
+        lane.run();
+        for (Future<?> future : lanes) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // runCase reports its own failures, nothing gets here
             }
+        }
+        return List.of(results);
+    }
+
+    private TestCaseResult runCase(CaseRunner runner, int index, TestCase testCase) {
+        ExecutionResult result;
+        try {
+            result = runner.run(index, testCase);
         } catch (Exception e) {
-            System.err.println("Failed to cleanup temp dir: " + e.getMessage());
+            result = ExecutionResult.internalError(e.getMessage());
         }
+        Boolean passed = testCase.getExpectedOutput() == null ? null
+                : result.getStatus() == ExecutionStatus.SUCCESS
+                        && normalizeOutput(result.getStdout()).equals(normalizeOutput(testCase.getExpectedOutput()));
+        return new TestCaseResult(index, result, passed);
+    }
+
+    // Judge-style comparison: ignore trailing spaces on each line and trailing blank lines
+    private static String normalizeOutput(String output) {
+        String[] lines = output.replace("\r\n", "\n").split("\n");
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line.stripTrailing()).append('\n');
+        }
+        return sb.toString().stripTrailing();
+    }
+
+    private synchronized ExecutorService batchExecutor() {
+        if (batchExecutor == null) {
+            // Lanes beyond the first, bounded by the scheduler slots their batches hold
+            batchExecutor = Executors.newFixedThreadPool(executionScheduler.getMaxConcurrent(), r -> {
+                Thread t = new Thread(r, "batch-case");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return batchExecutor;
+    }
+
+    private String formatResult(ExecutionResult result, String languageName) {
+        switch (result.getStatus()) {
+            case COMPILATION_ERROR:
+                return "Compilation Error:\n" + result.getStderr();
+            case INTERNAL_ERROR:
+                return "Internal System Error: " + result.getStderr();
+            case TIMEOUT:
+                return "Execution Timeout: " + languageName + " code took too long to run.\nOutput so far:\n" + result.getStdout();
+            case RUNTIME_ERROR:
+                return "Runtime Error:\n" + result.getStderr();
+            default:
+                return result.getStdout().isEmpty() ? "Execution successful (no output)." : result.getStdout();
+        }
+    }
+
+    @FunctionalInterface
+    private interface CaseRunner {
+        ExecutionResult run(int index, TestCase testCase) throws IOException, InterruptedException;
     }
 }
@@ -0,0 +1,150 @@
+package com.labqms.backend.service;
+
+import com.labqms.backend.model.CompilationDiagnostic;
+import com.labqms.backend.model.CompilationResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Compile results keyed by a SHA-256 of language, compiler version, class name and source.
+ * Successful compiles keep their class bytes (or native executable), failed ones keep their diagnostics, so an unchanged
+ * re-run or a whole class submitting the same template never reaches the compiler. Identical
+ * sources compiled concurrently share a single compilation. System errors (compiler missing,
+ * timed out, interrupted) are handed to the waiting callers but not kept, the next run retries.
+ */
+@Service
+public class CompilationCache {
+
+    @Value("${coderunner.compile-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<CompilationResult>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long currentBytes;
+
+    public CompilationResult getOrCompile(String language, String compilerVersion, String className, String source,
+                                          Supplier<CompilationResult> compiler) {
+        return getOrCompile(keyOf(language, compilerVersion, className, source), compiler);
+    }
+
+    public CompilationResult getOrCompile(String key, Supplier<CompilationResult> compiler) {
+        CompilationResult cached = get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        CompletableFuture<CompilationResult> mine = new CompletableFuture<>();
+        CompletableFuture<CompilationResult> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            hits.incrementAndGet();
+            return asHit(existing.join());
+        }
+
+        misses.incrementAndGet();
+        try {
+            CompilationResult result = compiler.get();
+            if (!result.isSystemError()) {
+                put(key, result);
+            }
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long h = hits.get();
+        long m = misses.get();
+        return Map.of(
+                "entries", entries.size(),
+                "bytes", currentBytes,
+                "maxBytes", maxBytes,
+                "hits", h,
+                "misses", m,
+                "evictions", evictions.get(),
+                "hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+    }
+
+    private synchronized CompilationResult get(String key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : asHit(entry.result);
+    }
+
+    private synchronized void put(String key, CompilationResult result) {
+        long size = sizeOf(key, result);
+        if (size > maxBytes) return;
+
+        Entry previous = entries.put(key, new Entry(result, size));
+        if (previous != null) {
+            currentBytes -= previous.size;
+        }
+        currentBytes += size;
+
+        var eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= eldest.next().getValue().size;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    // Callers get their own result object, the class bytes themselves are shared and never modified
+    private static CompilationResult asHit(CompilationResult result) {
+        CompilationResult copy = new CompilationResult(result.isSuccess(), result.getClasses(), result.getDiagnostics(), 0);
+        copy.setCached(true);
+        return copy;
+    }
+
+    private static long sizeOf(String key, CompilationResult result) {
+        long size = key.length() + 64;
+        for (byte[] bytes : result.getClasses().values()) {
+            size += bytes.length + 64;
+        }
+        for (CompilationDiagnostic d : result.getDiagnostics()) {
+            size += (d.getMessage() == null ? 0 : d.getMessage().length() * 2L) + 64;
+        }
+        return size;
+    }
+
+    public static String keyOf(String language, String compilerVersion, String className, String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] { language, compilerVersion, className, source }) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Entry {
+        final CompilationResult result;
+        final long size;
+
+        Entry(CompilationResult result, long size) {
+            this.result = result;
+            this.size = size;
+        }
+    }
+}
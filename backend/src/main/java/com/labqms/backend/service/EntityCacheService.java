@@ -0,0 +1,111 @@
+package com.labqms.backend.service;
+
+import com.labqms.backend.config.SecondLevelCacheConfig;
+import com.labqms.backend.model.BankQuestion;
+import com.labqms.backend.model.Paper;
+import com.labqms.backend.model.Question;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Evicts papers and questions from the second-level cache when the services write them, and
+ * reports how often reads were served from it (when {@code cache.second-level.statistics} is on).
+ *
+ * <p>Hibernate already keeps READ_WRITE entries in step with writes made through the ORM; the
+ * explicit evictions cover what it cannot see, such as a deleted question still listed in a
+ * cached {@code Paper.questions}. They run after commit so a concurrent reader cannot put the old
+ * row back in between.
+ */
+@Service
+public class EntityCacheService {
+
+    private static final String PAPER_QUESTIONS = Paper.class.getName() + ".questions";
+    private static final String QUESTION_OPTIONS = Question.class.getName() + ".options";
+    private static final String BANK_QUESTION_OPTIONS = BankQuestion.class.getName() + ".options";
+
+    private final SessionFactory sessionFactory;
+
+    @Autowired
+    public EntityCacheService(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    public void evictPaper(String id) {
+        afterCommit(cache -> {
+            cache.evictEntityData(Paper.class, id);
+            cache.evictCollectionData(PAPER_QUESTIONS, id);
+        });
+    }
+
+    public void evictQuestion(String id) {
+        afterCommit(cache -> {
+            cache.evictEntityData(Question.class, id);
+            cache.evictCollectionData(QUESTION_OPTIONS, id);
+        });
+    }
+
+    // A question's papers are not known from its side, so every cached question list goes
+    public void evictAllPaperQuestions() {
+        afterCommit(cache -> cache.evictCollectionData(PAPER_QUESTIONS));
+    }
+
+    public void evictBankQuestion(String id) {
+        afterCommit(cache -> {
+            cache.evictEntityData(BankQuestion.class, id);
+            cache.evictCollectionData(BANK_QUESTION_OPTIONS, id);
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return Map.of("statisticsEnabled", false);
+        }
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : SecondLevelCacheConfig.REGIONS) {
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            regions.put(region, ratio(regionStatistics.getHitCount(), regionStatistics.getMissCount(),
+                    regionStatistics.getPutCount()));
+        }
+        Map<String, Object> stats = ratio(statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount());
+        // Statements actually sent to MySQL, to compare against the hits above
+        stats.put("statementsPrepared", statistics.getPrepareStatementCount());
+        stats.put("regions", regions);
+        return stats;
+    }
+
+    private static Map<String, Object> ratio(long hits, long misses, long puts) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("puts", puts);
+        stats.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return stats;
+    }
+
+    private void afterCommit(Consumer<Cache> eviction) {
+        Cache cache = sessionFactory.getCache();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.accept(cache);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.accept(cache);
+            }
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package com.labqms.backend.service;
+
+import com.labqms.backend.model.BatchExecutionResult;
+import com.labqms.backend.model.ExecutionRecord;
+import com.labqms.backend.model.ExecutionRecordPage;
+import com.labqms.backend.model.ExecutionResult;
+import com.labqms.backend.repository.ExecutionRecordRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores resource usage of every run for analytics. Saving happens off the request path so a
+ * slow database never adds to a student's run time. At most {@code queue-capacity} saves wait
+ * for the writer; past that records are dropped and counted, they are not worth the heap.
+ */
+@Service
+public class ExecutionRecordService {
+
+    @Autowired
+    private ExecutionRecordRepository executionRecordRepository;
+
+    @Value("${coderunner.records.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${coderunner.records.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMillis;
+
+    private ThreadPoolExecutor writer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueCapacity), r -> {
+            Thread t = new Thread(r, "execution-records");
+            t.setDaemon(true);
+            return t;
+        }, (task, executor) -> dropped.incrementAndGet());
+    }
+
+    public void record(String studentId, String language, String mode, ExecutionResult result) {
+        save(List.of(new ExecutionRecord(studentId, language, mode, result)));
+    }
+
+    /** One record per test case; batches that never ran (compile errors) have nothing to record. */
+    public void recordBatch(String studentId, String language, BatchExecutionResult batch) {
+        List<ExecutionRecord> records = batch.getResults().stream()
+                .map(result -> new ExecutionRecord(studentId, language, "BATCH", result))
+                .collect(Collectors.toList());
+        if (!records.isEmpty()) {
+            save(records);
+        }
+    }
+
+    /**
+     * One page of a student's records, newest first. Ids only grow, so the cursor is the id of
+     * the last record on the previous page; null for the first one.
+     *
+     * @throws NumberFormatException for a cursor this service did not hand out
+     */
+    public ExecutionRecordPage getByStudent(String studentId, String cursor, int limit) {
+        // One extra row tells whether there is a next page
+        List<ExecutionRecord> rows = cursor == null || cursor.isEmpty()
+                ? executionRecordRepository.findByStudentIdOrderByIdDesc(studentId, Limit.of(limit + 1))
+                : executionRecordRepository.findByStudentIdAndIdLessThanOrderByIdDesc(studentId, Long.parseLong(cursor),
+                        Limit.of(limit + 1));
+        if (rows.size() <= limit) {
+            return new ExecutionRecordPage(rows, null);
+        }
+        List<ExecutionRecord> page = rows.subList(0, limit);
+        return new ExecutionRecordPage(page, String.valueOf(page.get(limit - 1).getId()));
+    }
+
+    private void save(List<ExecutionRecord> records) {
+        writer.execute(() -> {
+            try {
+                executionRecordRepository.saveAll(records);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                System.err.println("Failed to store execution records: " + e.getMessage());
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "queued", writer.getQueue().size(),
+                "capacity", queueCapacity,
+                "dropped", dropped.get(),
+                "failed", failed.get());
+    }
+
+    // Daemon thread, so without the wait queued records would be lost on every restart
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        if (!writer.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            System.err.println("Execution record writer stopped with " + writer.getQueue().size() + " saves pending");
+        }
+    }
+}
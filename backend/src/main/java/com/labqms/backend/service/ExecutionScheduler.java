@@ -0,0 +1,227 @@
+package com.labqms.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for code runs. At most max-concurrent runs execute at once, the rest wait
+ * in per-student queues that are served weighted round-robin, so one student hammering Run only
+ * ever delays their own submissions. A student takes up to their weight in runs from the head of
+ * the rotation before it moves on ({@code student-weight}, overridden per student by
+ * {@code weights}). Callers key the queues on the student, or the client address when there is
+ * none. When the queues are full new runs are rejected right away instead of piling up behind a
+ * 5 second timeout.
+ *
+ * <p>A run that starts several processes at once (a parallel batch) takes one slot per process,
+ * so max-concurrent bounds processes rather than requests.
+ */
+@Service
+public class ExecutionScheduler {
+
+    @Value("${coderunner.scheduler.max-concurrent:0}")
+    private int maxConcurrent;
+
+    @Value("${coderunner.scheduler.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${coderunner.scheduler.max-queued-per-student:3}")
+    private int maxQueuedPerStudent;
+
+    // Runs a student may take from the head of the rotation before it moves on
+    @Value("${coderunner.scheduler.student-weight:1}")
+    private int studentWeight;
+
+    // studentId=weight, for students who get more than the default
+    @Value("${coderunner.scheduler.weights:}")
+    private List<String> weightMappings;
+
+    private final Map<String, Integer> weights = new HashMap<>();
+
+    private final Map<String, Deque<Job<?>>> queues = new HashMap<>();
+    private final Deque<String> rotation = new ArrayDeque<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicInteger threadIds = new AtomicInteger();
+
+    private ExecutorService executor;
+    private int running;
+    private int queued;
+    private int creditsLeft;
+
+    @PostConstruct
+    public void init() {
+        if (maxConcurrent <= 0) {
+            maxConcurrent = Runtime.getRuntime().availableProcessors();
+        }
+        for (String mapping : weightMappings) {
+            if (mapping.isBlank()) continue;
+            int eq = mapping.lastIndexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected studentId=weight in coderunner.scheduler.weights: " + mapping);
+            }
+            weights.put(mapping.substring(0, eq).trim(), Math.max(1, Integer.parseInt(mapping.substring(eq + 1).trim())));
+        }
+        executor = Executors.newFixedThreadPool(maxConcurrent, r -> {
+            Thread t = new Thread(r, "code-run-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues a run for the given student. The future completes once the run has finished.
+     *
+     * @throws RejectedException when the student or the whole scheduler is at capacity
+     */
+    public <T> CompletableFuture<Scheduled<T>> submit(String clientKey, Supplier<T> task) {
+        return submit(clientKey, 1, task);
+    }
+
+    /**
+     * Queues a run that needs {@code slots} of the max-concurrent slots while it executes.
+     * Asking for more than max-concurrent gets all of them.
+     */
+    public <T> CompletableFuture<Scheduled<T>> submit(String clientKey, int slots, Supplier<T> task) {
+        Job<T> job = new Job<>(task, Math.max(1, Math.min(slots, maxConcurrent)));
+        synchronized (this) {
+            if (running + job.slots <= maxConcurrent && queued == 0) {
+                running += job.slots;
+                dispatch(job);
+                return job.future;
+            }
+            Deque<Job<?>> queue = queues.get(clientKey);
+            if (queue != null && queue.size() >= maxQueuedPerStudent) {
+                rejected.incrementAndGet();
+                throw new RejectedException(429, "You already have " + queue.size() + " runs waiting. Please wait for them to finish.");
+            }
+            if (queued >= queueCapacity) {
+                rejected.incrementAndGet();
+                throw new RejectedException(503, "The code runner is at capacity. Please try again in a moment.");
+            }
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(clientKey, queue);
+                rotation.addLast(clientKey);
+            }
+            queue.addLast(job);
+            queued++;
+        }
+        return job.future;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        return Map.of(
+                "maxConcurrent", maxConcurrent,
+                "slotsInUse", running,
+                "queued", queued,
+                "studentsWaiting", rotation.size(),
+                "rejected", rejected.get());
+    }
+
+    private void dispatch(Job<?> job) {
+        job.startedAt = System.nanoTime();
+        executor.execute(() -> {
+            try {
+                job.run();
+            } finally {
+                onFinished(job);
+            }
+        });
+    }
+
+    private synchronized void onFinished(Job<?> finished) {
+        running -= finished.slots;
+        dispatchQueued();
+    }
+
+    // Weighted round-robin: the student at the head gets up to their weight in runs, then goes to the back.
+    // A head run that needs more slots than are free waits for them, so wide runs aren't starved
+    private void dispatchQueued() {
+        String clientKey;
+        while ((clientKey = rotation.peekFirst()) != null) {
+            Deque<Job<?>> queue = queues.get(clientKey);
+            Job<?> job = queue.peekFirst();
+            if (running + job.slots > maxConcurrent) return;
+
+            queue.pollFirst();
+            queued--;
+            if (creditsLeft <= 0) {
+                creditsLeft = weights.getOrDefault(clientKey, Math.max(1, studentWeight));
+            }
+            creditsLeft--;
+            if (queue.isEmpty()) {
+                queues.remove(clientKey);
+                rotation.pollFirst();
+                creditsLeft = 0;
+            } else if (creditsLeft <= 0) {
+                rotation.addLast(rotation.pollFirst());
+            }
+            running += job.slots;
+            dispatch(job);
+        }
+    }
+
+    public static class Scheduled<T> {
+        private final T result;
+        private final long queueWaitMillis;
+
+        Scheduled(T result, long queueWaitMillis) {
+            this.result = result;
+            this.queueWaitMillis = queueWaitMillis;
+        }
+
+        public T getResult() { return result; }
+        public long getQueueWaitMillis() { return queueWaitMillis; }
+    }
+
+    public static class RejectedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        public RejectedException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public int getStatus() { return status; }
+    }
+
+    private static class Job<T> {
+        final Supplier<T> task;
+        final int slots;
+        final CompletableFuture<Scheduled<T>> future = new CompletableFuture<>();
+        final long submittedAt = System.nanoTime();
+        long startedAt;
+
+        Job(Supplier<T> task, int slots) {
+            this.task = task;
+            this.slots = slots;
+        }
+
+        void run() {
+            long waitMillis = (startedAt - submittedAt) / 1_000_000;
+            try {
+                future.complete(new Scheduled<>(task.get(), waitMillis));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+}
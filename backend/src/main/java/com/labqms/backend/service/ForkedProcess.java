@@ -0,0 +1,205 @@
+package com.labqms.backend.service;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A child of the Python fork server, presented as a regular Process so the runners don't
+ * need to care whether a program was forked or spawned. The exit code comes from the fork
+ * server, which is the process that actually reaps the child.
+ *
+ * The child leads its own session, so destroying it signals the whole process group through
+ * the fork server rather than just the one pid.
+ */
+class ForkedProcess extends Process {
+
+    private static final int SIGTERM = 15;
+    static final int SIGKILL = 9;
+
+    private final long pid;
+    private final CompletableFuture<Exit> exit;
+    private final PythonForkServer server;
+    private final OutputStream stdin;
+    private final InputStream stdout;
+    private final InputStream stderr;
+
+    /**
+     * Opens the child's FIFOs. Opening a FIFO blocks until the other end is opened too, so each
+     * open runs on the opener and gives up if the child exits or takes longer than openTimeoutMillis.
+     */
+    ForkedProcess(long pid, CompletableFuture<Exit> exit, Path workDir, PythonForkServer server,
+                  Executor opener, long openTimeoutMillis) throws IOException {
+        this.pid = pid;
+        this.exit = exit;
+        this.server = server;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(openTimeoutMillis);
+        OutputStream in = null;
+        InputStream out = null;
+        try {
+            // Must match the order the child opens them in, see python_fork_server.py
+            in = (OutputStream) openFifo(workDir.resolve("stdin.fifo").toFile(), true, opener, deadline);
+            out = (InputStream) openFifo(workDir.resolve("stdout.fifo").toFile(), false, opener, deadline);
+            this.stderr = (InputStream) openFifo(workDir.resolve("stderr.fifo").toFile(), false, opener, deadline);
+        } catch (IOException e) {
+            closeQuietly(in);
+            closeQuietly(out);
+            destroyForcibly();
+            throw e;
+        }
+        this.stdin = in;
+        this.stdout = out;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return stdin;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return stdout;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return stderr;
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+        try {
+            return exit.get().code;
+        } catch (ExecutionException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            exit.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            return true;
+        }
+    }
+
+    @Override
+    public int exitValue() {
+        if (!exit.isDone()) {
+            throw new IllegalThreadStateException("process hasn't exited");
+        }
+        return exit.getNow(Exit.LOST).code;
+    }
+
+    /** Exact resource usage as reported by wait4() in the fork server, or null while running. */
+    Exit getExit() {
+        return exit.getNow(null);
+    }
+
+    @Override
+    public void destroy() {
+        if (!server.kill(pid, SIGTERM) && !exit.isDone()) {
+            ProcessHandle.of(pid).ifPresent(ProcessHandle::destroy);
+        }
+    }
+
+    @Override
+    public Process destroyForcibly() {
+        if (!server.kill(pid, SIGKILL) && !exit.isDone()) {
+            ProcessHandle.of(pid).ifPresent(child -> {
+                child.descendants().forEach(ProcessHandle::destroyForcibly);
+                child.destroyForcibly();
+            });
+        }
+        return this;
+    }
+
+    @Override
+    public boolean isAlive() {
+        return !exit.isDone();
+    }
+
+    @Override
+    public long pid() {
+        return pid;
+    }
+
+    @Override
+    public CompletableFuture<Process> onExit() {
+        return exit.handle((code, error) -> this);
+    }
+
+    private Closeable openFifo(File fifo, boolean write, Executor opener, long deadline) throws IOException {
+        CompletableFuture<Closeable> opened = CompletableFuture.supplyAsync(() -> {
+            try {
+                // Channel-backed, so closing the stream also ends a read that is blocked on it
+                FileChannel channel = FileChannel.open(fifo.toPath(), write ? StandardOpenOption.WRITE : StandardOpenOption.READ);
+                return write ? Channels.newOutputStream(channel) : Channels.newInputStream(channel);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, opener);
+        try {
+            CompletableFuture.anyOf(opened, exit).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Either one failed or neither finished in time, looked at below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!opened.isDone()) {
+            // Opening the other end ourselves releases the stuck open, then both are closed
+            Closeable otherEnd = write ? new FileInputStream(fifo) : new FileOutputStream(fifo);
+            try {
+                closeQuietly(opened.join());
+            } catch (RuntimeException ignored) {
+                // The open failed after all
+            } finally {
+                closeQuietly(otherEnd);
+            }
+            throw new IOException(exit.isDone()
+                    ? "Forked child exited before opening " + fifo.getName()
+                    : "Forked child did not open " + fifo.getName() + " in time");
+        }
+        try {
+            return opened.join();
+        } catch (RuntimeException e) {
+            throw new IOException("Could not open " + fifo.getName(), e.getCause());
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Nothing left to do with it
+        }
+    }
+
+    static class Exit {
+        static final Exit LOST = new Exit(-1, 0, 0, 0);
+
+        final int code;
+        final long userMillis;
+        final long systemMillis;
+        final long maxRssKb;
+
+        Exit(int code, long userMillis, long systemMillis, long maxRssKb) {
+            this.code = code;
+            this.userMillis = userMillis;
+            this.systemMillis = systemMillis;
+            this.maxRssKb = maxRssKb;
+        }
+    }
+}
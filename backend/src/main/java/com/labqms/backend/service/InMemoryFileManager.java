@@ -0,0 +1,64 @@
+package com.labqms.backend.service;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps compiler output in memory instead of writing .class files next to the source.
+ */
+class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    private final Map<String, ClassOutput> outputs = new LinkedHashMap<>();
+
+    InMemoryFileManager(StandardJavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+        ClassOutput output = new ClassOutput(className, kind);
+        outputs.put(className, output);
+        return output;
+    }
+
+    Map<String, byte[]> getClassBytes() {
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        outputs.forEach((name, output) -> classes.put(name, output.bytes.toByteArray()));
+        return classes;
+    }
+
+    static JavaFileObject source(String className, String code) {
+        return new SourceInput(className, code);
+    }
+
+    private static class SourceInput extends SimpleJavaFileObject {
+        private final String code;
+
+        SourceInput(String className, String code) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    private static class ClassOutput extends SimpleJavaFileObject {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ClassOutput(String className, Kind kind) {
+            super(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+    }
+}
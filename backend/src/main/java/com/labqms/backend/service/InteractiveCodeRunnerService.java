@@ -1,169 +1,406 @@
 package com.labqms.backend.service;
 
+import com.labqms.backend.model.ExecutionResult;
+import com.labqms.backend.model.InteractiveSessionInfo;
 import com.labqms.backend.model.TerminalMessage;
+import com.labqms.backend.runtime.LanguageRuntime;
+import com.labqms.backend.runtime.LanguageRuntimes;
+import com.labqms.backend.runtime.PreparedProgram;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class InteractiveCodeRunnerService {
 
+    private static final long REAP_INTERVAL_SECONDS = 5;
+
+    // End reason of a user-initiated stop, which already gets its own status message
+    private static final String STOPPED = "stopped";
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
-    private final Map<String, Process> activeProcesses = new ConcurrentHashMap<>();
-    private final Map<String, BufferedWriter> activeStdins = new ConcurrentHashMap<>();
-    private final Map<String, StringBuilder> lineBuffers = new ConcurrentHashMap<>();
+    @Autowired
+    private LanguageRuntimes languageRuntimes;
+
+    @Autowired
+    private ExecutionRecordService executionRecordService;
+
+    @Autowired
+    private WorkspaceManager workspaceManager;
+
+    @Autowired
+    private ProcessIoExecutor processIoExecutor;
+
+    @Autowired
+    private InteractiveSessionRegistry sessionRegistry;
+
+    @Autowired
+    private BinaryTerminalSessions binaryTerminalSessions;
+
+    // Interactive programs spend most of their time waiting for input, so only CPU time is limited
+    @Value("${coderunner.limits.interactive-cpu-millis:10000}")
+    private long interactiveCpuLimitMillis;
+
+    @Value("${coderunner.terminal.frame-max-chars:16384}")
+    private int frameMaxChars;
+
+    @Value("${coderunner.terminal.frame-max-delay-ms:20}")
+    private long frameMaxDelayMillis;
+
+    private final long startedAt = System.currentTimeMillis();
+
+    @Value("${coderunner.terminal.output-rate-bytes-per-second:65536}")
+    private long outputRateBytesPerSecond;
+
+    @Value("${coderunner.terminal.output-burst-bytes:262144}")
+    private long outputBurstBytes;
+
+    @Value("${coderunner.terminal.output-budget-bytes:10485760}")
+    private long outputBudgetBytes;
+
+    @Value("${coderunner.interactive.idle-timeout-seconds:600}")
+    private long idleTimeoutSeconds;
+
+    @Value("${coderunner.interactive.max-lifetime-seconds:3600}")
+    private long maxLifetimeSeconds;
+
+    // How long a program keeps running after its terminal disconnects, waiting for the client to resume
+    @Value("${coderunner.interactive.disconnect-grace-seconds:60}")
+    private long disconnectGraceSeconds;
+
+    @Value("${coderunner.terminal.scrollback-chars:65536}")
+    private int scrollbackChars;
+
+    // Finished sessions stay resumable this long, so a client that reconnects still sees how the run ended
+    @Value("${coderunner.terminal.scrollback-retention-seconds:300}")
+    private long scrollbackRetentionSeconds;
+
+    private final Map<String, InteractiveSession> finishedSessions = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService meterScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "interactive-meter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Only fires delayed frame flushes; the sends themselves run on process I/O threads
+    private final ScheduledExecutorService flushTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "terminal-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void startReaper() {
+        meterScheduler.scheduleWithFixedDelay(this::reapExpiredSessions, REAP_INTERVAL_SECONDS, REAP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
 
     public void startExecution(String studentId, String code, String language) {
+        startExecution(studentId, code, language, null, null, false);
+    }
+
+    public void startExecution(String studentId, String code, String language, String paperId, String connectionId, boolean rawInput) {
         // Kill existing process for this student if any
         stopExecution(studentId);
 
-        String sessionId = studentId;
-        Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"), "smartproctor", sessionId);
+        finishedSessions.remove(studentId);
+        InteractiveSession session = new InteractiveSession(studentId, paperId, language, connectionId, rawInput, scrollbackChars);
+        try {
+            // A run started concurrently for the same student may have got in since the stop above
+            InteractiveSession replaced = sessionRegistry.register(session, STOPPED);
+            if (replaced != null && replaced.getProcess() != null) {
+                send(replaced, TerminalMessage.status("\r\n[Process terminated]\r\n", -1));
+            }
+        } catch (InteractiveSessionRegistry.LimitExceededException e) {
+            broadcast(studentId, TerminalMessage.output(e.getMessage()));
+            broadcast(studentId, TerminalMessage.status("", -1));
+            return;
+        }
+
+        // The session owns its workspace until the program exits
+        Workspace workspace = null;
+        ScheduledFuture<?> launchedSampler = null;
+        boolean monitored = false;
 
         try {
-            Files.createDirectories(tempDir);
-            String fileName = "PYTHON".equalsIgnoreCase(language) ? "script.py" : "Main.java";
-            Path sourceFile = tempDir.resolve(fileName);
-            Files.writeString(sourceFile, code);
-
-            ProcessBuilder pb;
-            if ("PYTHON".equalsIgnoreCase(language)) {
-                pb = new ProcessBuilder("python", "-u", fileName); // -u for unbuffered output
-            } else {
-                // Java needs compilation first
-                if (!compileJava(studentId, tempDir)) return;
-                pb = new ProcessBuilder("java", "Main");
+            workspace = workspaceManager.acquire();
+            Path tempDir = workspace.getDir();
+            LanguageRuntime runtime = languageRuntimes.get(language);
+            PreparedProgram program = runtime.prepare(code, tempDir);
+            if (!program.isSuccess()) {
+                reportCompilationError(session, program);
+                return;
             }
 
-            pb.directory(tempDir.toFile());
-            Process process = pb.start();
-            activeProcesses.put(studentId, process);
+            Process process = runtime.start(program, tempDir, true);
+            workspace.watch(process);
+            session.attach(process);
 
-            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
-            activeStdins.put(studentId, writer);
+            // Stream output and error in separate threads, coalesced into shared frames
+            TerminalOutputCoalescer coalescer = new TerminalOutputCoalescer(content -> {
+                    session.touch();
+                    send(session, TerminalMessage.output(content));
+                }, frameMaxChars, frameMaxDelayMillis, flushTimer, processIoExecutor.getExecutor());
+            // Both streams share one rate limit and one output budget
+            OutputRateLimiter limiter = new OutputRateLimiter(outputRateBytesPerSecond, outputBurstBytes, outputBudgetBytes);
+            Runnable overBudget = () -> session.end("output limit of " + describeBytes(limiter.getBudgetBytes()) + " exceeded");
+            CompletableFuture<Void> stdout = streamOutput(limiter.wrap(process.getInputStream()), coalescer.newStream(), overBudget);
+            CompletableFuture<Void> stderr = streamOutput(limiter.wrap(process.getErrorStream()), coalescer.newStream(), overBudget);
 
-            // Stream output and error in separate threads
-            streamOutput(process.getInputStream(), studentId, "stdout");
-            streamOutput(process.getErrorStream(), studentId, "stderr");
+            // Sample resource usage and enforce the CPU limit while it runs
+            long started = System.nanoTime();
+            ProcessMeter meter = session.getMeter();
+            ScheduledFuture<?> sampler = meterScheduler.scheduleAtFixedRate(() -> {
+                meter.sample();
+                if (meter.getCpuMillis() > interactiveCpuLimitMillis && process.isAlive()) {
+                    session.end("CPU time limit exceeded");
+                }
+            }, 0, 250, TimeUnit.MILLISECONDS);
+            launchedSampler = sampler;
 
             // Monitor process exit
+            Workspace sessionWorkspace = workspace;
             CompletableFuture.runAsync(() -> {
                 try {
                     int exitCode = process.waitFor();
-                    messagingTemplate.convertAndSend("/topic/terminal/" + studentId, 
-                        TerminalMessage.status("\r\n[Process exited with code " + exitCode + "]\r\n", exitCode));
+                    sampler.cancel(false);
+                    // Everything the program printed goes out before the exit status
+                    try {
+                        CompletableFuture.allOf(stdout, stderr).get(1, TimeUnit.SECONDS);
+                    } catch (ExecutionException | TimeoutException e) {
+                        // A grandchild may still hold the pipe open, don't wait for it
+                    }
+                    coalescer.flush();
+                    ExecutionResult usage = new ExecutionResult("", "", exitCode, meter.getCpuMillis() > interactiveCpuLimitMillis);
+                    usage.setRunMillis((System.nanoTime() - started) / 1_000_000);
+                    meter.applyTo(usage, process);
+                    executionRecordService.record(studentId, language, "INTERACTIVE", usage);
+
+                    // Programs we killed say why, instead of just showing exit code 137
+                    String reason = sessionWorkspace.isQuotaExceeded() ? "disk quota exceeded" : session.getEndReason();
+                    String summary = reason == null || STOPPED.equals(reason)
+                            ? "Process exited with code " + exitCode
+                            : "Process stopped: " + reason;
+                    send(session, TerminalMessage.status("\r\n[" + summary + " | " + describeUsage(usage) + "]\r\n", exitCode));
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                 } finally {
-                    activeProcesses.remove(studentId);
-                    activeStdins.remove(studentId);
-                    lineBuffers.remove(studentId);
+                    sessionRegistry.remove(session);
+                    sessionWorkspace.close();
+                    session.touch(); // retention counts from the end of the run
+                    finishedSessions.put(studentId, session);
                 }
-            });
+            }, processIoExecutor.getExecutor());
+            monitored = true;
 
         } catch (Exception e) {
-            messagingTemplate.convertAndSend("/topic/terminal/" + studentId, 
-                TerminalMessage.output("Internal Error: " + e.getMessage()));
-            messagingTemplate.convertAndSend("/topic/terminal/" + studentId, 
-                TerminalMessage.status("", -1));
+            send(session, TerminalMessage.output("Internal Error: " + e.getMessage()));
+            send(session, TerminalMessage.status("", -1));
+        } finally {
+            if (!monitored) {
+                // Nobody is watching the program (compile error, or no I/O thread free), don't leave it running
+                if (launchedSampler != null) {
+                    launchedSampler.cancel(false);
+                }
+                session.end("not started");
+                sessionRegistry.remove(session);
+                if (workspace != null) {
+                    workspace.close();
+                }
+            }
         }
     }
 
     public void handleInput(String studentId, String input) {
-        BufferedWriter writer = activeStdins.get(studentId);
-        if (writer == null) return;
-
-        StringBuilder buffer = lineBuffers.computeIfAbsent(studentId, k -> new StringBuilder());
-
-        for (char c : input.toCharArray()) {
-            int val = (int) c;
-            
-            if (val == 13 || val == 10) {
-                // Handle Enter key (\r or \n)
-                // If the buffer already ends with what we just sent, could be a CRLF sequence
-                // However, we process char by char. Standard practice is to consolidate.
-                if (buffer.length() > 0 || val == 13) {
-                    try {
-                        writer.write(buffer.toString() + "\n");
-                        writer.flush();
-                        messagingTemplate.convertAndSend("/topic/terminal/" + studentId, TerminalMessage.output("\r\n"));
-                        buffer.setLength(0);
-                    } catch (IOException e) {
-                        messagingTemplate.convertAndSend("/topic/terminal/" + studentId, 
-                            TerminalMessage.output("\r\n[Input Error: " + e.getMessage() + "]\r\n"));
-                    }
-                }
-            } else if (val == 8 || val == 127) {
-                // Handle Backspace (8) or Delete (127)
-                if (buffer.length() > 0) {
-                    buffer.setLength(buffer.length() - 1);
-                    // Visual erase: backspace, space, backspace
-                    messagingTemplate.convertAndSend("/topic/terminal/" + studentId, TerminalMessage.output("\b \b"));
-                }
-            } else if (val >= 32) {
-                // Only append printable characters
-                buffer.append(c);
-                // Visual echo
-                messagingTemplate.convertAndSend("/topic/terminal/" + studentId, TerminalMessage.output(String.valueOf(c)));
+        InteractiveSession session = sessionRegistry.get(studentId);
+        if (session == null || session.getStdin() == null) return;
+        session.touch();
+
+        try {
+            // One echo frame per input chunk, however many keys it holds
+            String echo = session.getLineDiscipline().process(input, session.getStdin());
+            if (!echo.isEmpty()) {
+                send(session, TerminalMessage.output(echo));
             }
+        } catch (IOException e) {
+            send(session, TerminalMessage.output("\r\n[Input Error: " + e.getMessage() + "]\r\n"));
+        }
+    }
+
+    /** Raw mode is for clients that echo and edit input locally. */
+    public void setRawMode(String studentId, boolean raw) {
+        InteractiveSession session = sessionRegistry.get(studentId);
+        if (session != null) {
+            session.getLineDiscipline().setRaw(raw);
         }
     }
 
     public void stopExecution(String studentId) {
-        Process p = activeProcesses.remove(studentId);
-        if (p != null && p.isAlive()) {
-            p.destroyForcibly();
-            messagingTemplate.convertAndSend("/topic/terminal/" + studentId, 
-                TerminalMessage.status("\r\n[Process terminated]\r\n", -1));
+        InteractiveSession session = sessionRegistry.get(studentId);
+        if (session == null) return;
+        sessionRegistry.remove(session);
+        Process p = session.getProcess();
+        if (session.end(STOPPED) && p != null) {
+            send(session, TerminalMessage.status("\r\n[Process terminated]\r\n", -1));
         }
-        activeStdins.remove(studentId);
-        lineBuffers.remove(studentId);
     }
 
-    private boolean compileJava(String studentId, Path dir) {
-        try {
-            Process p = new ProcessBuilder("javac", "Main.java").directory(dir.toFile()).start();
-            boolean success = p.waitFor(10, TimeUnit.SECONDS);
-            if (!success || p.exitValue() != 0) {
-                String error = new String(p.getErrorStream().readAllBytes());
-                messagingTemplate.convertAndSend("/topic/terminal/" + studentId, 
-                    TerminalMessage.output("Compilation Error:\r\n" + error));
-                
-                // Signal finish even on compilation error
-                messagingTemplate.convertAndSend("/topic/terminal/" + studentId, 
-                    TerminalMessage.status("", -1));
-                return false;
+    /**
+     * Re-sends the output a reconnecting client missed and moves the session over to its new connection.
+     * Works for finished runs too, until their scrollback retention runs out. The replay goes only to the
+     * resuming STOMP connection, on {@code /user/topic/terminal/{studentId}}; other subscribers of the
+     * topic already have that output.
+     */
+    public void resume(String studentId, long lastSeq, String connectionId) {
+        String destination = "/topic/terminal/" + studentId;
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(connectionId);
+        headers.setLeaveMutable(true);
+        MessageHeaders replyHeaders = headers.getMessageHeaders();
+        resume(studentId, lastSeq, connectionId,
+                message -> messagingTemplate.convertAndSendToUser(connectionId, destination, message, replyHeaders));
+    }
+
+    /** Same as above, replaying only to the given connection. */
+    public void resume(String studentId, long lastSeq, String connectionId, Consumer<TerminalMessage> replayTo) {
+        InteractiveSession session = sessionRegistry.get(studentId);
+        if (session == null) {
+            session = finishedSessions.get(studentId);
+        }
+        if (session == null) return;
+        session.reattach(connectionId);
+        session.touch();
+
+        session.getScrollback().replay(lastSeq,
+                () -> replayTo.accept(TerminalMessage.output("\r\n[Earlier output is no longer available]\r\n")),
+                replayTo);
+    }
+
+    public List<InteractiveSessionInfo> getSessions() {
+        return sessionRegistry.getAll().stream()
+                .map(InteractiveSession::toInfo)
+                .collect(Collectors.toList());
+    }
+
+    // The connection may only have dropped for a moment, the reaper ends the program if nobody resumes it
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        detachConnection(event.getSessionId());
+    }
+
+    public void detachConnection(String connectionId) {
+        for (InteractiveSession session : sessionRegistry.getByConnection(connectionId)) {
+            session.detach();
+        }
+    }
+
+    private void reapExpiredSessions() {
+        long now = System.currentTimeMillis();
+        for (InteractiveSession session : sessionRegistry.getAll()) {
+            String reason = null;
+            if (now - session.getStartedAtMillis() > TimeUnit.SECONDS.toMillis(maxLifetimeSeconds)) {
+                reason = "time limit of " + describeSeconds(maxLifetimeSeconds) + " reached";
+            } else if (now - session.getLastActivityMillis() > TimeUnit.SECONDS.toMillis(idleTimeoutSeconds)) {
+                reason = "no activity for " + describeSeconds(idleTimeoutSeconds);
+            } else if (session.getDetachedAtMillis() != 0
+                    && now - session.getDetachedAtMillis() > TimeUnit.SECONDS.toMillis(disconnectGraceSeconds)) {
+                reason = "disconnected";
+            }
+            if (reason != null) {
+                session.end(reason);
             }
-            return true;
-        } catch (Exception e) {
-            return false;
         }
+        long retentionMillis = TimeUnit.SECONDS.toMillis(scrollbackRetentionSeconds);
+        finishedSessions.values().removeIf(session -> now - session.getLastActivityMillis() > retentionMillis);
+    }
+
+    private static String describeBytes(long bytes) {
+        return bytes >= 1024 * 1024 ? bytes / (1024 * 1024) + " MB" : bytes / 1024 + " KB";
+    }
+
+    private static String describeSeconds(long seconds) {
+        return seconds >= 120 ? seconds / 60 + " minutes" : seconds + " seconds";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        meterScheduler.shutdownNow();
+        flushTimer.shutdownNow();
+    }
+
+    private String describeUsage(ExecutionResult usage) {
+        double cpuSeconds = (usage.getCpuUserMillis() + usage.getCpuSystemMillis()) / 1000.0;
+        double memoryMb = usage.getPeakMemoryKb() / 1024.0;
+        return String.format("CPU %.2fs | Memory %.1f MB", cpuSeconds, memoryMb);
+    }
+
+    private void reportCompilationError(InteractiveSession session, PreparedProgram program) {
+        send(session, TerminalMessage.output("Compilation Error:\r\n" + program.getCompilation().formatDiagnostics("\r\n")));
+        
+        // Signal finish even on compilation error
+        send(session, TerminalMessage.status("", -1));
+    }
+
+    // Everything a session prints is numbered and kept in its scrollback, so a client can resume after a reconnect
+    private void send(InteractiveSession session, TerminalMessage message) {
+        session.getScrollback().append(message, m -> broadcast(session.getStudentId(), m));
+    }
+
+    // STOMP subscribers and raw binary terminals of the student
+    private void broadcast(String studentId, TerminalMessage message) {
+        messagingTemplate.convertAndSend("/topic/terminal/" + studentId, message);
+        binaryTerminalSessions.send(studentId, message);
+    }
+
+    public Map<String, Object> getTerminalStats() {
+        long reads = TerminalOutputCoalescer.READS.get();
+        long frames = TerminalOutputCoalescer.FRAMES.get();
+        long chars = TerminalOutputCoalescer.CHARS.get();
+        double uptimeSeconds = Math.max(1, System.currentTimeMillis() - startedAt) / 1000.0;
+        return Map.of(
+                "reads", reads,
+                "frames", frames,
+                "readsPerFrame", frames == 0 ? 0.0 : (double) reads / frames,
+                "charsPerFrame", frames == 0 ? 0.0 : (double) chars / frames,
+                "framesPerSecond", frames / uptimeSeconds,
+                "throttledMillis", OutputRateLimiter.THROTTLED_MILLIS.get(),
+                "outputBudgetExceeded", OutputRateLimiter.BUDGET_EXCEEDED.get());
     }
 
-    private void streamOutput(InputStream is, String studentId, String type) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = is.read(buffer)) != -1) {
-                    if (bytesRead > 0) {
-                        String data = new String(buffer, 0, bytesRead);
-                        // Normalize line endings for Xterm.js (\n -> \r\n)
-                        String formatted = data.replace("\n", "\r\n").replace("\r\r\n", "\r\n");
-                        messagingTemplate.convertAndSend("/topic/terminal/" + studentId, 
-                            TerminalMessage.output(formatted));
+    private CompletableFuture<Void> streamOutput(InputStream is, TerminalOutputCoalescer.Stream stream, Runnable overBudget) {
+        // Pumps block for the whole life of the program, so never on the common pool
+        return CompletableFuture.runAsync(() -> {
+            // The reader keeps multi-byte characters intact across read() boundaries
+            try (Reader reader = new InputStreamReader(is)) {
+                char[] buffer = new char[8192];
+                int charsRead;
+                while ((charsRead = reader.read(buffer)) != -1) {
+                    if (charsRead > 0) {
+                        stream.write(buffer, charsRead);
                     }
                 }
+            } catch (OutputRateLimiter.BudgetExceededException e) {
+                overBudget.run();
             } catch (IOException e) {
                 // Process likely terminated
             }
-        });
+        }, processIoExecutor.getExecutor());
     }
 }
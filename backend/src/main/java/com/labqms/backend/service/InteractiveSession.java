@@ -0,0 +1,115 @@
+package com.labqms.backend.service;
+
+import com.labqms.backend.model.InteractiveSessionInfo;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * One student's interactive program, from the Run click until the process has exited.
+ * A session exists before its process does (while compiling), so it can be counted against
+ * the caps and ended at any point.
+ */
+class InteractiveSession {
+
+    private final String studentId;
+    private final String paperId;
+    private final String language;
+    private final LineDiscipline lineDiscipline;
+    private final TerminalScrollback scrollback;
+    private final long startedAtMillis = System.currentTimeMillis();
+    private volatile long lastActivityMillis = startedAtMillis;
+    private volatile String connectionId; // STOMP session the terminal is attached to
+    private volatile long detachedAtMillis; // 0 while a client is connected
+
+    private volatile Process process;
+    private volatile BufferedWriter stdin;
+    private volatile ProcessMeter meter;
+    private volatile String endReason;
+
+    InteractiveSession(String studentId, String paperId, String language, String connectionId, boolean rawInput,
+                       int scrollbackChars) {
+        this.studentId = studentId;
+        this.paperId = paperId;
+        this.language = language;
+        this.connectionId = connectionId;
+        this.lineDiscipline = new LineDiscipline(rawInput);
+        this.scrollback = new TerminalScrollback(scrollbackChars);
+    }
+
+    synchronized void attach(Process process) {
+        this.meter = new ProcessMeter(process.pid());
+        this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+        this.process = process;
+        // Ended while it was still compiling
+        if (endReason != null) {
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Ends the session; the process is killed and the exit monitor takes care of the rest.
+     * @return false if it had already ended
+     */
+    synchronized boolean end(String reason) {
+        if (endReason != null) return false;
+        endReason = reason;
+        if (process != null) {
+            process.destroyForcibly();
+        }
+        return true;
+    }
+
+    /** The client's connection dropped; the program keeps running for a while in case it comes back. */
+    void detach() {
+        detachedAtMillis = System.currentTimeMillis();
+    }
+
+    void reattach(String connectionId) {
+        this.connectionId = connectionId;
+        this.detachedAtMillis = 0;
+    }
+
+    void touch() {
+        lastActivityMillis = System.currentTimeMillis();
+    }
+
+    String getStudentId() { return studentId; }
+    String getPaperId() { return paperId; }
+    String getLanguage() { return language; }
+    String getConnectionId() { return connectionId; }
+    LineDiscipline getLineDiscipline() { return lineDiscipline; }
+    TerminalScrollback getScrollback() { return scrollback; }
+    long getDetachedAtMillis() { return detachedAtMillis; }
+    Process getProcess() { return process; }
+    BufferedWriter getStdin() { return stdin; }
+    ProcessMeter getMeter() { return meter; }
+    String getEndReason() { return endReason; }
+    long getStartedAtMillis() { return startedAtMillis; }
+    long getLastActivityMillis() { return lastActivityMillis; }
+
+    InteractiveSessionInfo toInfo() {
+        long now = System.currentTimeMillis();
+        Process p = process;
+        ProcessMeter m = meter;
+
+        InteractiveSessionInfo info = new InteractiveSessionInfo();
+        info.setStudentId(studentId);
+        info.setPaperId(paperId);
+        info.setLanguage(language);
+        info.setPid(p == null ? null : p.pid());
+        info.setAlive(p != null && p.isAlive());
+        info.setRawInput(lineDiscipline.isRaw());
+        info.setDetached(detachedAtMillis != 0);
+        info.setLastSeq(scrollback.getLastSeq());
+        info.setStartedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(startedAtMillis), ZoneId.systemDefault()));
+        info.setAgeSeconds((now - startedAtMillis) / 1000);
+        info.setIdleSeconds((now - lastActivityMillis) / 1000);
+        info.setCpuMillis(m == null ? 0 : m.getCpuMillis());
+        info.setPeakMemoryKb(m == null ? 0 : m.getPeakRssKb());
+        return info;
+    }
+}
@@ -0,0 +1,97 @@
+package com.labqms.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live interactive sessions, one per student, with a global cap and a per-paper cap so a single
+ * exam can't take every slot on the server.
+ */
+@Service
+public class InteractiveSessionRegistry {
+
+    @Value("${coderunner.interactive.max-sessions:200}")
+    private int maxSessions;
+
+    // 0 disables the per-paper cap
+    @Value("${coderunner.interactive.max-sessions-per-paper:150}")
+    private int maxSessionsPerPaper;
+
+    private final Map<String, InteractiveSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Registers the student's new session, ending the one it replaces. Both happen under the
+     * registry lock, so two runs started at once can't leave an untracked program running.
+     *
+     * @param replacedReason end reason given to the student's previous session, if there is one
+     * @return the previous session if this call ended it, otherwise null
+     * @throws LimitExceededException when the server or the paper is at capacity
+     */
+    synchronized InteractiveSession register(InteractiveSession session, String replacedReason) {
+        InteractiveSession previous = sessions.get(session.getStudentId());
+        // The session being replaced frees its slot
+        int live = sessions.size() - (previous == null ? 0 : 1);
+        if (live >= maxSessions) {
+            rejected.incrementAndGet();
+            throw new LimitExceededException("Too many programs are running on the server right now, please try again in a moment.");
+        }
+        if (maxSessionsPerPaper > 0 && session.getPaperId() != null) {
+            long forPaper = sessions.values().stream()
+                    .filter(s -> s != previous && session.getPaperId().equals(s.getPaperId()))
+                    .count();
+            if (forPaper >= maxSessionsPerPaper) {
+                rejected.incrementAndGet();
+                throw new LimitExceededException("Too many programs are running for this paper right now, please try again in a moment.");
+            }
+        }
+        sessions.put(session.getStudentId(), session);
+        return previous != null && previous.end(replacedReason) ? previous : null;
+    }
+
+    InteractiveSession get(String studentId) {
+        return sessions.get(studentId);
+    }
+
+    // Only removes this exact session, a newer one for the same student stays
+    boolean remove(InteractiveSession session) {
+        return sessions.remove(session.getStudentId(), session);
+    }
+
+    List<InteractiveSession> getAll() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    List<InteractiveSession> getByConnection(String connectionId) {
+        List<InteractiveSession> result = new ArrayList<>();
+        for (InteractiveSession session : sessions.values()) {
+            if (Objects.equals(connectionId, session.getConnectionId())) {
+                result.add(session);
+            }
+        }
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "live", sessions.size(),
+                "maxSessions", maxSessions,
+                "maxSessionsPerPaper", maxSessionsPerPaper,
+                "rejected", rejected.get());
+    }
+
+    public static class LimitExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public LimitExceededException(String message) {
+            super(message);
+        }
+    }
+}
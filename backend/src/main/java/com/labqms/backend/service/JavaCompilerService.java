@@ -0,0 +1,78 @@
+package com.labqms.backend.service;
+
+import com.labqms.backend.model.CompilationDiagnostic;
+import com.labqms.backend.model.CompilationResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.tools.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Service
+public class JavaCompilerService {
+
+    private static final List<String> OPTIONS = List.of("-proc:none", "-Xlint:none", "-encoding", "UTF-8");
+
+    private static final String COMPILER_VERSION = System.getProperty("java.version") + " " + OPTIONS;
+
+    @Autowired
+    private CompilationCache compilationCache;
+
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+    public boolean isAvailable() {
+        return compiler != null;
+    }
+
+    public CompilationResult compile(String className, String code) {
+        return compilationCache.getOrCompile(cacheKey(className, code), () -> compileUncached(className, code));
+    }
+
+    public String cacheKey(String className, String code) {
+        return CompilationCache.keyOf("JAVA", COMPILER_VERSION, className, code);
+    }
+
+    private CompilationResult compileUncached(String className, String code) {
+        if (compiler == null) {
+            return CompilationResult.failure("Java compiler is not available on this server (a JDK is required).");
+        }
+
+        long start = System.nanoTime();
+        DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+        StandardJavaFileManager standard = compiler.getStandardFileManager(collector, Locale.ENGLISH, StandardCharsets.UTF_8);
+
+        try (InMemoryFileManager fileManager = new InMemoryFileManager(standard)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, collector, OPTIONS, null,
+                    List.of(InMemoryFileManager.source(className, code)));
+            boolean success = task.call();
+
+            List<CompilationDiagnostic> diagnostics = new ArrayList<>();
+            for (Diagnostic<? extends JavaFileObject> d : collector.getDiagnostics()) {
+                String source = d.getSource() == null ? null : Path.of(d.getSource().toUri().getPath()).getFileName().toString();
+                diagnostics.add(new CompilationDiagnostic(d.getKind().name(), source,
+                        d.getLineNumber(), d.getColumnNumber(), d.getMessage(Locale.ENGLISH)));
+            }
+
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            return new CompilationResult(success, success ? fileManager.getClassBytes() : null, diagnostics, elapsed);
+        } catch (IOException e) {
+            return CompilationResult.failure("Internal compiler error: " + e.getMessage());
+        }
+    }
+
+    // The runners still launch "java Main" from a directory, so the class files need to land there
+    public void writeClasses(CompilationResult result, Path dir) throws IOException {
+        for (Map.Entry<String, byte[]> entry : result.getClasses().entrySet()) {
+            Path classFile = dir.resolve(entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(classFile.getParent());
+            Files.write(classFile, entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.labqms.backend.service;
+
+import com.labqms.backend.model.CompilationResult;
+import com.labqms.backend.model.ExecutionResult;
+import com.labqms.backend.worker.ExecutionWorker;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a few JVMs running ExecutionWorker so a Java run doesn't pay for JVM startup.
+ * Batch jobs reuse a worker until it has served max-jobs-per-worker jobs or the job
+ * escaped (timed out, left threads running, died). Interactive jobs take a worker over
+ * for good, and a replacement is started in the background.
+ *
+ * Every worker runs in a workspace of its own, leased for the worker's lifetime, checked
+ * against the disk quota and emptied before the worker takes the next job.
+ */
+@Service
+public class JavaWorkerPool {
+
+    private static final long WORKER_START_TIMEOUT_SECONDS = 20;
+    private static final long RESPONSE_GRACE_MILLIS = 2000;
+    // Room for the "[Output truncated]" marker on top of the output limit
+    private static final int REPLY_SLACK_BYTES = 64;
+
+    @Autowired
+    private WorkspaceManager workspaceManager;
+
+    // Drains worker stderr once the handshake is done
+    @Autowired
+    private ProcessIoExecutor processIoExecutor;
+
+    @Value("${coderunner.java.worker-pool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${coderunner.java.worker-pool.size:2}")
+    private int poolSize;
+
+    @Value("${coderunner.java.worker-pool.max-jobs-per-worker:50}")
+    private int maxJobsPerWorker;
+
+    @Value("${coderunner.java.worker-pool.heap-mb:256}")
+    private int heapMb;
+
+    @Value("${coderunner.java.worker-pool.acquire-timeout-ms:3000}")
+    private long acquireTimeoutMillis;
+
+    // Workers capture output in their own heap, so they get the same cap as spawned processes;
+    // a job may raise it for stdout, see run()
+    @Value("${coderunner.output.memory-limit-bytes:65536}")
+    private int outputLimitBytes;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger liveWorkers = new AtomicInteger();
+    private final ScheduledExecutorService supervisor = Executors.newScheduledThreadPool(2, r -> {
+        Thread t = new Thread(r, "java-worker-pool");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Path workerClasspath;
+    private volatile boolean closed;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        try {
+            workerClasspath = extractWorkerClasses();
+        } catch (IOException e) {
+            System.err.println("Java worker pool disabled, could not extract worker classes: " + e.getMessage());
+            enabled = false;
+            return;
+        }
+        for (int i = 0; i < poolSize; i++) {
+            replenish();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        supervisor.shutdownNow();
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.process.destroyForcibly();
+        }
+        if (workerClasspath != null) {
+            // worker-<pid>, so a restart doesn't leave the old copy behind
+            Path workerDir = workerClasspath.getParent();
+            try {
+                WorkspaceManager.deleteContents(workerDir);
+                Files.deleteIfExists(workerDir);
+            } catch (IOException e) {
+                System.err.println("Could not remove worker classes " + workerDir + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs a compiled program to completion on a pooled worker. Returns null when no worker
+     * could be acquired, in which case the caller should fall back to a plain "java" process.
+     * Up to {@code stdoutLimit} bytes of stdout are kept, so a test case can be compared against
+     * an expected answer longer than the usual output cap.
+     */
+    public ExecutionResult run(CompilationResult compilation, String mainClass, String input, long cpuLimitMillis,
+                               long wallLimitMillis, int stdoutLimit) {
+        Worker worker = acquire();
+        if (worker == null) return null;
+
+        // Safety net in case the worker stops answering altogether
+        ScheduledFuture<?> watchdog = supervisor.schedule(worker.process::destroyForcibly,
+                wallLimitMillis + RESPONSE_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        boolean released = false;
+        try {
+            DataOutputStream out = worker.out;
+            writeJob(out, ExecutionWorker.MODE_BATCH, mainClass, compilation);
+            byte[] inputBytes = input == null ? new byte[0] : input.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(inputBytes.length);
+            out.write(inputBytes);
+            out.writeLong(cpuLimitMillis);
+            out.writeLong(wallLimitMillis);
+            out.writeInt(stdoutLimit);
+            out.writeInt(outputLimitBytes);
+            out.flush();
+
+            DataInputStream in = worker.in;
+            int exitCode = in.readInt();
+            boolean timedOut = in.readBoolean();
+            boolean recycle = in.readBoolean();
+            String stdout = new String(readBytes(in, stdoutLimit + REPLY_SLACK_BYTES), StandardCharsets.UTF_8);
+            String stderr = new String(readBytes(in, outputLimitBytes + REPLY_SLACK_BYTES), StandardCharsets.UTF_8);
+            boolean truncated = in.readBoolean();
+            long cpuUserNanos = in.readLong();
+            long cpuTotalNanos = in.readLong();
+            long peakHeapBytes = in.readLong();
+
+            worker.jobs++;
+            released = true;
+            release(worker, recycle);
+            ExecutionResult result = new ExecutionResult(stdout, stderr, exitCode, timedOut);
+            result.setOutputTruncated(truncated);
+            // CPU of the whole worker while the job ran, like a spawned JVM; heap peak of the worker
+            result.setCpuUserMillis(cpuUserNanos / 1_000_000);
+            result.setCpuSystemMillis(Math.max(0, cpuTotalNanos - cpuUserNanos) / 1_000_000);
+            result.setPeakMemoryKb(peakHeapBytes / 1024);
+            return result;
+        } catch (IOException e) {
+            // Worker died mid-job (killed by the watchdog, crashed, out of memory) or sent garbage
+            released = true;
+            release(worker, true);
+            boolean killed = watchdog.isDone();
+            return new ExecutionResult("", killed ? "" : "Worker terminated unexpectedly", -1, killed);
+        } finally {
+            watchdog.cancel(false);
+            // Anything unexpected still has to give the slot back, or the pool shrinks for good
+            if (!released) {
+                release(worker, true);
+            }
+        }
+    }
+
+    /**
+     * Hands a worker's process over to an interactive session. The returned process behaves like
+     * "java Main": its streams are the program's stdin/stdout/stderr and it exits with the program.
+     * Returns null when no worker is available.
+     */
+    public Process startInteractive(CompilationResult compilation, String mainClass) {
+        Worker worker = acquire();
+        if (worker == null) return null;
+        try {
+            writeJob(worker.out, ExecutionWorker.MODE_INTERACTIVE, mainClass, compilation);
+            worker.out.flush();
+            if (worker.in.readInt() != ExecutionWorker.READY) {
+                throw new IOException("Unexpected worker handshake");
+            }
+            return worker.process;
+        } catch (IOException e) {
+            worker.process.destroyForcibly();
+            return null;
+        } finally {
+            // The worker now belongs to the session either way
+            liveWorkers.decrementAndGet();
+            replenish();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "enabled", enabled,
+                "size", poolSize,
+                "idle", idle.size(),
+                "live", liveWorkers.get());
+    }
+
+    private Worker acquire() {
+        if (!enabled || closed) return null;
+        try {
+            while (true) {
+                Worker worker = idle.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+                if (worker == null) return null;
+                if (worker.process.isAlive()) return worker;
+                liveWorkers.decrementAndGet();
+                replenish();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void release(Worker worker, boolean recycle) {
+        if (!recycle && !worker.clearWorkspace()) {
+            recycle = true;
+        }
+        if (recycle || worker.jobs >= maxJobsPerWorker || !worker.process.isAlive() || closed) {
+            worker.process.destroyForcibly();
+            liveWorkers.decrementAndGet();
+            replenish();
+        } else {
+            idle.offer(worker);
+        }
+    }
+
+    private void replenish() {
+        if (closed || liveWorkers.incrementAndGet() > poolSize) {
+            liveWorkers.decrementAndGet();
+            return;
+        }
+        supervisor.execute(() -> {
+            try {
+                idle.offer(startWorker());
+            } catch (Exception e) {
+                liveWorkers.decrementAndGet();
+                if (!closed) {
+                    System.err.println("Failed to start Java worker: " + e.getMessage());
+                    supervisor.schedule(this::replenish, 5, TimeUnit.SECONDS);
+                }
+            }
+        });
+    }
+
+    private Worker startWorker() throws IOException, InterruptedException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Workspace workspace = workspaceManager.acquire();
+        ProcessBuilder pb = new ProcessBuilder(java,
+                "-Xmx" + heapMb + "m",
+                "-XX:+UseSerialGC",
+                "-XX:TieredStopAtLevel=1",
+                "-Xss8m",
+                "-Djava.security.manager=allow",
+                "-cp", workerClasspath.toString(),
+                ExecutionWorker.class.getName(),
+                workspace.getDir().toString());
+        pb.directory(workspace.getDir().toFile());
+        Process process;
+        try {
+            process = pb.start();
+        } catch (IOException e) {
+            workspace.close();
+            throw e;
+        }
+        workspace.watch(process);
+        process.onExit().thenRun(workspace::close);
+
+        Worker worker = new Worker(process, workspace);
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WORKER_START_TIMEOUT_SECONDS);
+            while (process.getInputStream().available() < Integer.BYTES) {
+                if (!process.isAlive() || System.nanoTime() > deadline) {
+                    throw new IOException("Worker did not become ready");
+                }
+                Thread.sleep(10);
+            }
+            if (worker.in.readInt() != ExecutionWorker.READY) {
+                throw new IOException("Unexpected worker handshake");
+            }
+            skipStartupNoise(process.getErrorStream());
+            discardStderr(process);
+        } catch (IOException | InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+        return worker;
+    }
+
+    // Byte at a time so nothing past the marker is pulled out of the process's own stream buffer
+    private static void skipStartupNoise(InputStream err) throws IOException {
+        byte[] marker = ExecutionWorker.STDERR_MARKER.getBytes(StandardCharsets.UTF_8);
+        int matched = 0;
+        while (matched < marker.length) {
+            int b = err.read();
+            if (b == -1) throw new EOFException("Worker closed stderr during startup");
+            matched = b == marker[matched] ? matched + 1 : (b == marker[0] ? 1 : 0);
+        }
+    }
+
+    // Jobs report their stderr through the protocol, whatever else the JVM prints must not fill the pipe
+    private void discardStderr(Process process) throws IOException {
+        try {
+            processIoExecutor.getExecutor().execute(() -> {
+                try (InputStream err = process.getErrorStream()) {
+                    err.transferTo(OutputStream.nullOutputStream());
+                } catch (IOException e) {
+                    // Worker is gone
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new IOException("No I/O thread free to drain worker stderr");
+        }
+    }
+
+    private static void writeJob(DataOutputStream out, int mode, String mainClass, CompilationResult compilation) throws IOException {
+        out.writeInt(mode);
+        out.writeUTF(mainClass);
+        Map<String, byte[]> classes = compilation.getClasses();
+        out.writeInt(classes.size());
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Corrupt worker reply, length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    // The backend may run from a fat jar, so copy the worker's class files somewhere "java -cp" can see them
+    private static Path extractWorkerClasses() throws IOException {
+        Path root = Paths.get(System.getProperty("java.io.tmpdir"), "smartproctor", "worker-" + ProcessHandle.current().pid(), "classes");
+        Deque<Class<?>> pending = new ArrayDeque<>(List.of(ExecutionWorker.class));
+        while (!pending.isEmpty()) {
+            Class<?> type = pending.pop();
+            String resource = type.getName().replace('.', '/') + ".class";
+            Path target = root.resolve(resource);
+            Files.createDirectories(target.getParent());
+            try (InputStream is = ExecutionWorker.class.getClassLoader().getResourceAsStream(resource)) {
+                if (is == null) throw new FileNotFoundException(resource);
+                Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            pending.addAll(Arrays.asList(type.getDeclaredClasses()));
+        }
+        return root;
+    }
+
+    private static class Worker {
+        final Process process;
+        final Workspace workspace;
+        final DataOutputStream out;
+        final DataInputStream in;
+        int jobs;
+
+        Worker(Process process, Workspace workspace) {
+            this.process = process;
+            this.workspace = workspace;
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            // No extra buffering here: after an interactive handshake the rest of this stream is program output
+            this.in = new DataInputStream(process.getInputStream());
+        }
+
+        // Nothing one job wrote may be seen by the next
+        boolean clearWorkspace() {
+            try {
+                workspace.clear();
+                return !workspace.isQuotaExceeded();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
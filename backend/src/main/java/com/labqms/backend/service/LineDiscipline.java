@@ -0,0 +1,83 @@
+package com.labqms.backend.service;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Terminal line discipline for one interactive session. In the default (cooked) mode keystrokes
+ * are collected into a line that can be edited with backspace and handed to the program on Enter;
+ * the echo for a whole input chunk is returned as one string so it goes out as one frame.
+ * In raw mode, for clients that echo and edit locally, input goes straight through without echo.
+ */
+class LineDiscipline {
+
+    private final StringBuilder line = new StringBuilder();
+    private volatile boolean raw;
+    private boolean lastWasCr;
+
+    LineDiscipline(boolean raw) {
+        this.raw = raw;
+    }
+
+    void setRaw(boolean raw) {
+        this.raw = raw;
+    }
+
+    boolean isRaw() {
+        return raw;
+    }
+
+    /**
+     * Processes one chunk of input, writing completed lines (or everything, in raw mode) to the
+     * program's stdin.
+     *
+     * @return the echo for the terminal, empty if there is nothing to show
+     */
+    synchronized String process(String input, Writer stdin) throws IOException {
+        StringBuilder echo = new StringBuilder();
+        boolean wrote = false;
+
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+
+            if (c == '\r' || c == '\n') {
+                // Enter arrives as \r, \n or \r\n depending on the client; \r\n is a single Enter
+                boolean secondHalfOfCrLf = c == '\n' && lastWasCr;
+                lastWasCr = c == '\r';
+                if (secondHalfOfCrLf) continue;
+
+                if (!raw) {
+                    stdin.append(line);
+                    line.setLength(0);
+                    echo.append("\r\n");
+                }
+                stdin.write('\n');
+                wrote = true;
+                continue;
+            }
+            lastWasCr = false;
+
+            if (raw) {
+                stdin.write(c);
+                wrote = true;
+            } else if (c == 8 || c == 127) {
+                // Backspace (8) or Delete (127), erased visually with backspace, space, backspace
+                if (line.length() > 0) {
+                    int remove = line.length() > 1 && Character.isLowSurrogate(line.charAt(line.length() - 1))
+                            && Character.isHighSurrogate(line.charAt(line.length() - 2)) ? 2 : 1;
+                    line.setLength(line.length() - remove);
+                    echo.append("\b \b");
+                }
+            } else if (c >= 32) {
+                // Only printable characters go into the line
+                line.append(c);
+                echo.append(c);
+            }
+        }
+
+        if (wrote) {
+            stdin.flush();
+        }
+        return echo.toString();
+    }
+}
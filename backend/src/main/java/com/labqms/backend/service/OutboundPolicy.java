@@ -0,0 +1,17 @@
+package com.labqms.backend.service;
+
+/**
+ * What to do with a WebSocket client that can't keep up, chosen by the destination of the
+ * messages piling up for it.
+ */
+public enum OutboundPolicy {
+    /** Drop the oldest queued messages of this kind, e.g. terminal output the client can resume. */
+    DROP_OLDEST,
+    /**
+     * Keep only the newest queued message per destination. Only for destinations where each
+     * message supersedes all earlier ones; /topic/code-jobs/ carries a message per job, so it isn't one.
+     */
+    MERGE,
+    /** Close the connection so the client reconnects and reloads, e.g. violation alerts. */
+    DISCONNECT
+}
@@ -0,0 +1,178 @@
+package com.labqms.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Gives every WebSocket connection its own bounded outbound buffer ({@link PolicyBufferedSession}),
+ * so a teacher on a bad network or a student tab in the background can't back up delivery for
+ * everyone else. What happens when a buffer fills depends on the destination, see
+ * {@code websocket.outbound.policies}.
+ *
+ * <p>Writers run on the process I/O threads (virtual where available, otherwise bounded), and a
+ * watchdog closes connections whose current write has been stuck past the send time limit even
+ * when nothing else is being sent to them.
+ */
+@Service
+public class OutboundSessionPolicies {
+
+    private static final long WATCHDOG_INTERVAL_MILLIS = 1000;
+
+    @Autowired
+    private ProcessIoExecutor processIoExecutor;
+
+    @Value("${websocket.outbound.send-time-limit-ms:10000}")
+    private int sendTimeLimitMillis;
+
+    @Value("${websocket.outbound.buffer-size-limit-bytes:524288}")
+    private int bufferSizeLimitBytes;
+
+    // destination prefix=policy, first match wins
+    @Value("${websocket.outbound.policies:/topic/terminal/=DROP_OLDEST,/topic/code-jobs/=DISCONNECT,/topic/proctoring/=DISCONNECT}")
+    private List<String> policyMappings;
+
+    @Value("${websocket.outbound.default-policy:DISCONNECT}")
+    private OutboundPolicy defaultPolicy;
+
+    private final Map<String, OutboundPolicy> policies = new LinkedHashMap<>();
+    private final Map<String, PolicyBufferedSession> sessions = new ConcurrentHashMap<>();
+
+    // Counters of connections that are already gone
+    private final AtomicLong closedDropped = new AtomicLong();
+    private final AtomicLong closedMerged = new AtomicLong();
+    private final AtomicLong disconnectedForLimits = new AtomicLong();
+
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ws-send-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void start() {
+        parsePolicies();
+        watchdog.scheduleWithFixedDelay(this::checkSendTimeLimits, WATCHDOG_INTERVAL_MILLIS, WATCHDOG_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void parsePolicies() {
+        for (String mapping : policyMappings) {
+            int eq = mapping.lastIndexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected prefix=POLICY in websocket.outbound.policies: " + mapping);
+            }
+            policies.put(mapping.substring(0, eq).trim(), OutboundPolicy.valueOf(mapping.substring(eq + 1).trim()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    /** Decorator for the STOMP handler, registered through the WebSocket transport configuration. */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                super.afterConnectionEstablished(wrap(session, sendTimeLimitMillis, bufferSizeLimitBytes,
+                        OutboundSessionPolicies::stompDestination, OutboundSessionPolicies.this::policyFor));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                release(session);
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /** Wraps a connection that isn't going through STOMP, with limits and policies of its own. */
+    public WebSocketSession wrap(WebSocketSession session, int sendTimeLimitMillis, int bufferSizeLimitBytes,
+                                 Function<WebSocketMessage<?>, String> destinationOf, Function<String, OutboundPolicy> policyOf) {
+        PolicyBufferedSession buffered = new PolicyBufferedSession(session, sendTimeLimitMillis, bufferSizeLimitBytes,
+                destinationOf, policyOf, processIoExecutor.getExecutor());
+        sessions.put(session.getId(), buffered);
+        return buffered;
+    }
+
+    public void release(WebSocketSession session) {
+        PolicyBufferedSession buffered = sessions.remove(session.getId());
+        if (buffered != null) {
+            closedDropped.addAndGet(buffered.getDropped());
+            closedMerged.addAndGet(buffered.getMerged());
+            if (buffered.getCloseReason() != null) {
+                disconnectedForLimits.incrementAndGet();
+            }
+        }
+    }
+
+    private void checkSendTimeLimits() {
+        for (PolicyBufferedSession session : sessions.values()) {
+            session.checkSendTimeLimit();
+        }
+    }
+
+    public OutboundPolicy policyFor(String destination) {
+        if (destination != null) {
+            for (Map.Entry<String, OutboundPolicy> entry : policies.entrySet()) {
+                if (destination.startsWith(entry.getKey())) return entry.getValue();
+            }
+        }
+        return defaultPolicy;
+    }
+
+    public Map<String, Object> getStats() {
+        long dropped = closedDropped.get();
+        long merged = closedMerged.get();
+        long disconnected = disconnectedForLimits.get();
+        List<Map<String, Object>> perSession = new ArrayList<>();
+        for (PolicyBufferedSession session : sessions.values()) {
+            perSession.add(session.getStats());
+            dropped += session.getDropped();
+            merged += session.getMerged();
+            if (session.getCloseReason() != null) disconnected++;
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sendTimeLimitMillis", sendTimeLimitMillis);
+        stats.put("bufferSizeLimitBytes", bufferSizeLimitBytes);
+        stats.put("policies", policies);
+        stats.put("dropped", dropped);
+        stats.put("merged", merged);
+        stats.put("disconnectedForLimits", disconnected);
+        stats.put("sessions", perSession);
+        return stats;
+    }
+
+    // Only MESSAGE frames carry a destination, everything else (CONNECTED, ERROR, heartbeats) gets the default
+    private static String stompDestination(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage text)) return null;
+        String frame = text.getPayload();
+        if (!frame.startsWith("MESSAGE\n")) return null;
+        int headersEnd = frame.indexOf("\n\n");
+        int start = frame.indexOf("\ndestination:");
+        if (start < 0 || (headersEnd >= 0 && start > headersEnd)) return null;
+        start += "\ndestination:".length();
+        int end = frame.indexOf('\n', start);
+        return end < 0 ? null : frame.substring(start, end);
+    }
+}
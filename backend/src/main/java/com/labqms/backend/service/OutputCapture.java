@@ -0,0 +1,135 @@
+package com.labqms.backend.service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+
+/**
+ * Drains a process stream on its own thread from the moment the process starts, so a chatty
+ * program never blocks on a full pipe. Only the first memoryLimit bytes are kept on the heap;
+ * the overflow goes to a spill file (up to spillLimit) or is counted and dropped. Either way the
+ * stream is read to the end, which keeps the per-run memory bounded.
+ */
+class OutputCapture implements Closeable {
+
+    private final int memoryLimit;
+    private final long spillLimit;
+    private final Path spillFile;
+    private final InputStream in;
+    private final ByteArrayOutputStream head = new ByteArrayOutputStream();
+    private final Future<?> drainer;
+
+    private OutputStream spill;
+    private long totalBytes;
+    private long spilledBytes;
+
+    private OutputCapture(InputStream in, int memoryLimit, long spillLimit, Path spillFile, ExecutorService executor) {
+        this.memoryLimit = memoryLimit;
+        this.spillLimit = spillFile == null ? 0 : spillLimit;
+        this.spillFile = spillFile;
+        this.in = in;
+        this.drainer = executor.submit(() -> drain(in));
+    }
+
+    /**
+     * @param spillFile where to put output beyond memoryLimit, or null to drop it
+     */
+    static OutputCapture start(InputStream in, int memoryLimit, long spillLimit, Path spillFile, ExecutorService executor) {
+        return new OutputCapture(in, memoryLimit, spillLimit, spillFile, executor);
+    }
+
+    /** Waits for the stream to hit EOF, which happens once the process is gone. */
+    void await(long timeoutMillis) throws InterruptedException {
+        try {
+            drainer.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Keep whatever was captured; the stream is closed in close()
+        }
+    }
+
+    synchronized boolean isTruncated() {
+        return totalBytes > head.size();
+    }
+
+    synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /** The in-memory part of the output, with a marker when there was more. */
+    String getText() throws IOException {
+        return getText(memoryLimit);
+    }
+
+    /**
+     * Up to maxBytes of the output, reading past the in-memory part from the spill file when
+     * needed, e.g. so a large expected answer can still be compared exactly.
+     */
+    synchronized String getText(int maxBytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(head.toByteArray(), 0, Math.min(head.size(), maxBytes));
+        if (maxBytes > head.size() && spilledBytes > 0) {
+            spill.flush();
+            try (InputStream in = Files.newInputStream(spillFile)) {
+                out.write(in.readNBytes(maxBytes - head.size()));
+            }
+        }
+        String text = out.toString(StandardCharsets.UTF_8);
+        if (totalBytes <= out.size()) {
+            return text;
+        }
+        return text + "\n[Output truncated: " + (totalBytes - out.size()) + " more bytes]\n";
+    }
+
+    @Override
+    public void close() {
+        // A read blocked on a pipe that a leftover grandchild still holds open ignores interrupts,
+        // closing the stream is what ends it
+        try {
+            in.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        drainer.cancel(true);
+        closeSpill();
+    }
+
+    private synchronized void closeSpill() {
+        try {
+            if (spill != null) spill.close();
+            if (spillFile != null) Files.deleteIfExists(spillFile);
+        } catch (IOException e) {
+            // Temp dir cleanup will get it
+        }
+    }
+
+    private void drain(InputStream in) {
+        byte[] buffer = new byte[8192];
+        try (in) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                append(buffer, n);
+            }
+        } catch (IOException e) {
+            // Process was killed
+        }
+    }
+
+    private synchronized void append(byte[] buffer, int n) throws IOException {
+        totalBytes += n;
+        int toMemory = Math.min(n, memoryLimit - head.size());
+        if (toMemory > 0) {
+            head.write(buffer, 0, toMemory);
+        }
+        int rest = n - Math.max(toMemory, 0);
+        if (rest > 0 && spilledBytes < spillLimit) {
+            int toSpill = (int) Math.min(rest, spillLimit - spilledBytes);
+            if (spill == null) {
+                spill = new BufferedOutputStream(Files.newOutputStream(spillFile));
+            }
+            spill.write(buffer, n - rest, toSpill);
+            spilledBytes += toSpill;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.labqms.backend.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket over the bytes a session's program writes to stdout and stderr. Once the burst
+ * is spent the output pumps sleep, the pipe fills up and the program itself blocks on write,
+ * so a print loop can't flood the broker. A total budget ends the run for good.
+ */
+class OutputRateLimiter {
+
+    // Shared across sessions for the stats endpoint
+    static final AtomicLong THROTTLED_MILLIS = new AtomicLong();
+    static final AtomicLong BUDGET_EXCEEDED = new AtomicLong();
+
+    private final long bytesPerSecond;
+    private final long burstBytes;
+    private final long budgetBytes;
+
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long consumed;
+
+    OutputRateLimiter(long bytesPerSecond, long burstBytes, long budgetBytes) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstBytes = burstBytes;
+        this.budgetBytes = budgetBytes;
+        this.tokens = burstBytes;
+    }
+
+    long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /** Wraps one of the program's output streams; reads past the budget fail with {@link BudgetExceededException}. */
+    InputStream wrap(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    acquire(n);
+                }
+                return n;
+            }
+
+            @Override
+            public int read() throws IOException {
+                int c = super.read();
+                if (c >= 0) {
+                    acquire(1);
+                }
+                return c;
+            }
+        };
+    }
+
+    // Takes the tokens right away (going negative if need be) and sleeps off the debt outside the lock
+    private void acquire(int bytes) throws IOException {
+        long waitNanos;
+        synchronized (this) {
+            if (consumed > budgetBytes) {
+                throw new BudgetExceededException();
+            }
+            consumed += bytes;
+            if (consumed > budgetBytes) {
+                BUDGET_EXCEEDED.incrementAndGet();
+                throw new BudgetExceededException();
+            }
+            long now = System.nanoTime();
+            tokens = Math.min(burstBytes, tokens + (now - lastRefillNanos) * bytesPerSecond / 1e9);
+            lastRefillNanos = now;
+            tokens -= bytes;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens * 1e9 / bytesPerSecond);
+        }
+        if (waitNanos > 0) {
+            THROTTLED_MILLIS.addAndGet(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while throttling output", e);
+            }
+        }
+    }
+
+    static class BudgetExceededException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        BudgetExceededException() {
+            super("Output budget exceeded");
+        }
+    }
+}
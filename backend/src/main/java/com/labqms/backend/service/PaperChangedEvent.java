@@ -0,0 +1,15 @@
+package com.labqms.backend.service;
+
+/**
+ * Published when a paper or one of its questions is written. A null paper id means the change may
+ * touch any paper, e.g. a question was edited and its papers are not known from its side.
+ */
+public class PaperChangedEvent {
+    private final String paperId;
+
+    public PaperChangedEvent(String paperId) {
+        this.paperId = paperId;
+    }
+
+    public String getPaperId() { return paperId; }
+}
@@ -1,9 +1,14 @@
 package com.labqms.backend.service;
 
 import com.labqms.backend.model.Paper;
+import com.labqms.backend.model.PaperView;
+import com.labqms.backend.model.Question;
 import com.labqms.backend.repository.PaperRepository;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,19 +18,43 @@ public class PaperService {
     @Autowired
     private PaperRepository paperRepository;
 
-    public List<Paper> getAllPapers() {
-        return paperRepository.findAll();
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Views are built before the transaction ends, so a paper with its questions and options
+    // takes a fixed number of queries no matter how many questions it has
+    @Transactional(readOnly = true)
+    public List<PaperView> getAllPapers() {
+        return paperRepository.findAllWithQuestions().stream().map(PaperView::from).toList();
     }
 
-    public Optional<Paper> getPaperById(String id) {
-        return paperRepository.findById(id);
+    // Goes through find and lazy loading rather than a fetch-join query: queries bypass the
+    // second-level cache, this way an exam opened once is served from memory afterwards
+    @Transactional(readOnly = true)
+    public Optional<PaperView> getPaperById(String id) {
+        return paperRepository.findById(id).map(paper -> {
+            Hibernate.initialize(paper.getQuestions());
+            if (paper.getQuestions() != null) {
+                paper.getQuestions().forEach(q -> Hibernate.initialize(q.getOptions()));
+            }
+            return PaperView.from(paper);
+        });
     }
 
-    public List<Paper> getPapersByTeacher(String teacherId) {
-        return paperRepository.findByTeacherId(teacherId);
+    public Optional<String> findIdByAccessCode(String accessCode) {
+        return paperRepository.findIdsByAccessCode(accessCode).stream().findFirst();
     }
 
-    public Paper createPaper(Paper paper) {
+    @Transactional(readOnly = true)
+    public List<PaperView> getPapersByTeacher(String teacherId) {
+        return paperRepository.findWithQuestionsByTeacherId(teacherId).stream().map(PaperView::from).toList();
+    }
+
+    @Transactional
+    public PaperView createPaper(Paper paper) {
         if (paper.getId() == null) {
             paper.setId("paper-" + System.currentTimeMillis());
         }
@@ -37,6 +66,12 @@ public class PaperService {
                 }
             });
         }
-        return paperRepository.save(paper);
+        Paper saved = paperRepository.save(paper);
+        entityCacheService.evictPaper(saved.getId());
+        if (saved.getQuestions() != null) {
+            saved.getQuestions().stream().map(Question::getId).forEach(entityCacheService::evictQuestion);
+        }
+        eventPublisher.publishEvent(new PaperChangedEvent(saved.getId()));
+        return PaperView.from(saved);
     }
 }
@@ -0,0 +1,161 @@
+package com.labqms.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.labqms.backend.model.PaperView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable, pre-serialized copies of {@code GET /api/papers/{id}}. When an exam opens the whole
+ * lab asks for the same paper within seconds; the first request builds the JSON and its gzip once,
+ * everyone else (and every revalidation) is served those bytes or a 304.
+ *
+ * <p>Snapshots are dropped after a paper or question write commits. A concurrent build of the
+ * same paper finishes before the drop, so a stale snapshot cannot outlive the change.
+ */
+@Service
+public class PaperSnapshotCache {
+
+    @Autowired
+    private PaperService paperService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ConcurrentHashMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> paperIdsByAccessCode = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public Optional<Snapshot> get(String paperId) {
+        Snapshot existing = snapshots.get(paperId);
+        if (existing != null) {
+            hits.incrementAndGet();
+            return Optional.of(existing);
+        }
+        // computeIfAbsent lets only one request per paper build, the rest wait for its result
+        boolean[] built = new boolean[1];
+        Snapshot snapshot = snapshots.computeIfAbsent(paperId, id -> {
+            built[0] = true;
+            return build(id);
+        });
+        if (snapshot != null && !built[0]) {
+            hits.incrementAndGet();
+        }
+        return Optional.ofNullable(snapshot);
+    }
+
+    public Optional<Snapshot> getByAccessCode(String accessCode) {
+        String paperId = paperIdsByAccessCode.get(accessCode);
+        if (paperId == null) {
+            paperId = paperService.findIdByAccessCode(accessCode).orElse(null);
+            if (paperId == null) return Optional.empty();
+        }
+        // Only remember the code while the snapshot still carries it
+        Optional<Snapshot> snapshot = get(paperId).filter(s -> accessCode.equals(s.getAccessCode()));
+        if (snapshot.isPresent()) {
+            paperIdsByAccessCode.put(accessCode, paperId);
+        } else {
+            paperIdsByAccessCode.remove(accessCode, paperId);
+        }
+        return snapshot;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPaperChanged(PaperChangedEvent event) {
+        invalidations.incrementAndGet();
+        if (event.getPaperId() == null) {
+            snapshots.clear();
+            paperIdsByAccessCode.clear();
+            return;
+        }
+        snapshots.remove(event.getPaperId());
+        paperIdsByAccessCode.values().removeIf(event.getPaperId()::equals);
+    }
+
+    public Map<String, Object> getStats() {
+        long h = hits.get();
+        long b = builds.get();
+        return Map.of(
+                "snapshots", snapshots.size(),
+                "bytes", snapshots.values().stream().mapToLong(s -> s.getJson().length + s.getGzip().length).sum(),
+                "hits", h,
+                "builds", b,
+                "invalidations", invalidations.get(),
+                "hitRatio", h + b == 0 ? 0.0 : (double) h / (h + b));
+    }
+
+    private Snapshot build(String paperId) {
+        PaperView paper = paperService.getPaperById(paperId).orElse(null);
+        if (paper == null) return null;
+        builds.incrementAndGet();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(paper);
+            return new Snapshot(paper.getId(), paper.getAccessCode(), json, gzip(json), etag(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize paper " + paperId, e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // Strong validator: a hash of the exact bytes, so equal ETags mean byte-identical bodies
+    private static String etag(byte[] json) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class Snapshot {
+        private final String paperId;
+        private final String accessCode;
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+
+        Snapshot(String paperId, String accessCode, byte[] json, byte[] gzip, String etag) {
+            this.paperId = paperId;
+            this.accessCode = accessCode;
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+        }
+
+        public String getPaperId() { return paperId; }
+        public String getAccessCode() { return accessCode; }
+        public byte[] getJson() { return json; }
+        public byte[] getGzip() { return gzip; }
+
+        /** Quoted ETag of one representation; the gzipped bytes get a tag of their own. */
+        public String getEtag(boolean gzipped) {
+            return "\"" + etag + (gzipped ? "-gz" : "") + "\"";
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.labqms.backend.service;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Outbound buffer of one WebSocket session. {@link #sendMessage} only queues and never blocks;
+ * a writer thread drains the queue, so a slow client holds up nothing but its own writer. When
+ * the queue goes over its byte limit the {@link OutboundPolicy} of the queued messages decides
+ * what goes, and a write stuck longer than the send time limit closes the session (checked on
+ * every send and by the watchdog in {@link OutboundSessionPolicies}).
+ */
+class PolicyBufferedSession extends WebSocketSessionDecorator {
+
+    private final int sendTimeLimitMillis;
+    private final int bufferSizeLimitBytes;
+    private final Function<WebSocketMessage<?>, String> destinationOf;
+    private final Function<String, OutboundPolicy> policyOf;
+    private final Executor writer;
+
+    private final Deque<Pending> queue = new ArrayDeque<>();
+    private long bufferedBytes;
+    private boolean flushScheduled;
+    private volatile long writeStartedAt; // 0 while not writing
+    private volatile boolean closed;
+
+    private long sent;
+    private long dropped;
+    private long merged;
+    private String closeReason;
+
+    PolicyBufferedSession(WebSocketSession delegate, int sendTimeLimitMillis, int bufferSizeLimitBytes,
+                          Function<WebSocketMessage<?>, String> destinationOf, Function<String, OutboundPolicy> policyOf,
+                          Executor writer) {
+        super(delegate);
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.bufferSizeLimitBytes = bufferSizeLimitBytes;
+        this.destinationOf = destinationOf;
+        this.policyOf = policyOf;
+        this.writer = writer;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        String limitExceeded = null;
+        synchronized (this) {
+            if (closed) return;
+            String destination = destinationOf.apply(message);
+            OutboundPolicy policy = policyOf.apply(destination);
+            if (policy == OutboundPolicy.MERGE && replaceQueued(destination, message)) {
+                merged++;
+            } else {
+                queue.addLast(new Pending(message, destination, policy));
+                bufferedBytes += message.getPayloadLength();
+            }
+
+            if (isWriteStuck()) {
+                limitExceeded = sendTimeLimitReason();
+            } else if (!shrinkToLimit()) {
+                limitExceeded = "buffer size limit of " + bufferSizeLimitBytes + " bytes exceeded";
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                try {
+                    writer.execute(this::flush);
+                } catch (RejectedExecutionException e) {
+                    flushScheduled = false;
+                    limitExceeded = "no writer thread available";
+                }
+            }
+        }
+        if (limitExceeded != null) {
+            closeForLimit(limitExceeded);
+        }
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        synchronized (this) {
+            closed = true;
+            queue.clear();
+            bufferedBytes = 0;
+        }
+        super.close(status);
+    }
+
+    /**
+     * Closes the session if its current write has been blocked past the send time limit. The close
+     * runs on a writer thread, it may block on the same stuck connection.
+     */
+    void checkSendTimeLimit() {
+        if (!isWriteStuck()) return;
+        String reason = sendTimeLimitReason();
+        if (!markClosing(reason)) return;
+        try {
+            writer.execute(() -> closeDelegate(reason));
+        } catch (RejectedExecutionException e) {
+            closeDelegate(reason);
+        }
+    }
+
+    synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("id", getId());
+        stats.put("bufferedMessages", queue.size());
+        stats.put("bufferedBytes", bufferedBytes);
+        stats.put("sent", sent);
+        stats.put("dropped", dropped);
+        stats.put("merged", merged);
+        if (closeReason != null) {
+            stats.put("closedFor", closeReason);
+        }
+        return stats;
+    }
+
+    synchronized long getDropped() { return dropped; }
+    synchronized long getMerged() { return merged; }
+    synchronized String getCloseReason() { return closeReason; }
+
+    private void flush() {
+        while (true) {
+            Pending next;
+            synchronized (this) {
+                next = closed ? null : queue.pollFirst();
+                if (next == null) {
+                    flushScheduled = false;
+                    return;
+                }
+                bufferedBytes -= next.message.getPayloadLength();
+                writeStartedAt = System.currentTimeMillis();
+            }
+            try {
+                getDelegate().sendMessage(next.message);
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    closed = true;
+                    queue.clear();
+                    bufferedBytes = 0;
+                    flushScheduled = false;
+                }
+                return;
+            } finally {
+                writeStartedAt = 0;
+            }
+            synchronized (this) {
+                sent++;
+            }
+        }
+    }
+
+    // Latest wins: the queued message for the same destination is replaced where it stands
+    private boolean replaceQueued(String destination, WebSocketMessage<?> message) {
+        if (destination == null) return false;
+        for (Pending pending : queue) {
+            if (pending.policy == OutboundPolicy.MERGE && Objects.equals(destination, pending.destination)) {
+                bufferedBytes += message.getPayloadLength() - pending.message.getPayloadLength();
+                pending.message = message;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Drops the oldest droppable messages until the buffer fits, false if that isn't enough
+    private boolean shrinkToLimit() {
+        Iterator<Pending> it = queue.iterator();
+        while (bufferedBytes > bufferSizeLimitBytes && it.hasNext()) {
+            Pending pending = it.next();
+            if (pending.policy == OutboundPolicy.DROP_OLDEST) {
+                it.remove();
+                bufferedBytes -= pending.message.getPayloadLength();
+                dropped++;
+            }
+        }
+        return bufferedBytes <= bufferSizeLimitBytes;
+    }
+
+    private boolean isWriteStuck() {
+        long started = writeStartedAt;
+        return started != 0 && System.currentTimeMillis() - started > sendTimeLimitMillis;
+    }
+
+    private String sendTimeLimitReason() {
+        return "send time limit of " + sendTimeLimitMillis + " ms exceeded";
+    }
+
+    private void closeForLimit(String reason) {
+        if (markClosing(reason)) {
+            closeDelegate(reason);
+        }
+    }
+
+    // Only the first limit to trip closes the session
+    private synchronized boolean markClosing(String reason) {
+        if (closed || closeReason != null) return false;
+        closeReason = reason;
+        return true;
+    }
+
+    private void closeDelegate(String reason) {
+        try {
+            close(CloseStatus.SESSION_NOT_RELIABLE.withReason(reason));
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    private static class Pending {
+        private WebSocketMessage<?> message;
+        private final String destination;
+        private final OutboundPolicy policy;
+
+        Pending(WebSocketMessage<?> message, String destination, OutboundPolicy policy) {
+            this.message = message;
+            this.destination = destination;
+            this.policy = policy;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.labqms.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Threads for the blocking work around child processes: pumping stdout/stderr, feeding stdin
+ * and waiting for exit. Every live program ties up a few of these for its whole lifetime, so
+ * they are kept off the common ForkJoinPool and away from the rest of the application. WebSocket
+ * writers, which block on slow clients the same way, run here too.
+ * Runs on virtual threads when the JVM has them (Java 21+), otherwise on a bounded pool of
+ * platform threads that rejects work once full instead of queueing it behind blocked pumps.
+ */
+@Service
+public class ProcessIoExecutor {
+
+    @Value("${coderunner.io.max-platform-threads:512}")
+    private int maxPlatformThreads;
+
+    private ExecutorService delegate;
+    private boolean virtualThreads;
+    private final ExecutorService executor = new Gauged();
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        delegate = newVirtualThreadExecutor();
+        virtualThreads = delegate != null;
+        if (delegate == null) {
+            AtomicInteger sequence = new AtomicInteger();
+            delegate = new ThreadPoolExecutor(0, maxPlatformThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+                Thread t = new Thread(r, "process-io-" + sequence.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        delegate.shutdownNow();
+    }
+
+    /** Not a Spring bean on purpose, an Executor bean would replace Boot's default task executor. */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "threads", virtualThreads ? "virtual" : "platform",
+                "maxPlatformThreads", maxPlatformThreads,
+                "activePumps", active.get(),
+                "peakActivePumps", peakActive.get(),
+                "started", started.get(),
+                "rejected", rejected.get());
+    }
+
+    // Thread.ofVirtual() only exists on Java 21+, the build targets 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, "process-io-", 0L);
+            ThreadFactory factory = (ThreadFactory) ofVirtual.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private class Gauged extends AbstractExecutorService {
+
+        @Override
+        public void execute(Runnable command) {
+            try {
+                delegate.execute(() -> {
+                    peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    try {
+                        command.run();
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                });
+                started.incrementAndGet();
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.labqms.backend.service;
+
+import com.labqms.backend.model.ExecutionResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Samples CPU time and peak resident memory of a running process. On Linux this reads
+ * /proc/{pid}/stat (utime/stime) and /proc/{pid}/status (VmHWM); elsewhere only the total CPU
+ * time from ProcessHandle is available. Values from the last successful sample are kept, since
+ * /proc entries disappear as soon as the process is reaped.
+ */
+class ProcessMeter {
+
+    // USER_HZ, which is 100 on every mainstream Linux build
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+
+    private final long pid;
+    private final Path procDir;
+    private volatile long userMillis;
+    private volatile long systemMillis;
+    private volatile long peakRssKb;
+
+    ProcessMeter(long pid) {
+        this.pid = pid;
+        this.procDir = Paths.get("/proc", String.valueOf(pid));
+    }
+
+    void sample() {
+        if (Files.isDirectory(procDir)) {
+            try {
+                sampleProc();
+                return;
+            } catch (IOException | RuntimeException e) {
+                // Process went away between the check and the read
+                return;
+            }
+        }
+        ProcessHandle.of(pid)
+                .flatMap(handle -> handle.info().totalCpuDuration())
+                .map(Duration::toMillis)
+                .ifPresent(total -> userMillis = Math.max(userMillis, total));
+    }
+
+    long getCpuMillis() {
+        return userMillis + systemMillis;
+    }
+
+    long getUserMillis() {
+        return userMillis;
+    }
+
+    long getSystemMillis() {
+        return systemMillis;
+    }
+
+    long getPeakRssKb() {
+        return peakRssKb;
+    }
+
+    /** Copies the usage into the result, preferring the fork server's exact wait4() numbers. */
+    void applyTo(ExecutionResult result, Process process) {
+        ForkedProcess.Exit exit = process instanceof ForkedProcess forked ? forked.getExit() : null;
+        if (exit != null && exit != ForkedProcess.Exit.LOST) {
+            result.setCpuUserMillis(exit.userMillis);
+            result.setCpuSystemMillis(exit.systemMillis);
+            result.setPeakMemoryKb(exit.maxRssKb);
+        } else {
+            result.setCpuUserMillis(userMillis);
+            result.setCpuSystemMillis(systemMillis);
+            result.setPeakMemoryKb(peakRssKb);
+        }
+    }
+
+    private void sampleProc() throws IOException {
+        String stat = Files.readString(procDir.resolve("stat"));
+        // The command name may contain spaces, so fields are counted from the closing paren
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        userMillis = Math.max(userMillis, Long.parseLong(fields[11]) * 1000 / CLOCK_TICKS_PER_SECOND);
+        systemMillis = Math.max(systemMillis, Long.parseLong(fields[12]) * 1000 / CLOCK_TICKS_PER_SECOND);
+
+        for (String line : Files.readAllLines(procDir.resolve("status"))) {
+            if (line.startsWith("VmHWM:")) {
+                long kb = Long.parseLong(line.substring(6).trim().split("\\s+")[0]);
+                peakRssKb = Math.max(peakRssKb, kb);
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.labqms.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Talks to a long-lived python_fork_server.py that forks one child per submission.
+ * spawn() returns null whenever the fork server can't be used (disabled, Windows, crashed),
+ * and callers then start a plain interpreter instead.
+ */
+@Service
+public class PythonForkServer {
+
+    private static final long SPAWN_TIMEOUT_SECONDS = 5;
+
+    @Autowired
+    private ProcessIoExecutor processIoExecutor;
+
+    @Value("${coderunner.python.command:python}")
+    private String pythonCommand;
+
+    @Value("${coderunner.python.fork-server.enabled:true}")
+    private boolean enabled;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong requestIds = new AtomicLong();
+    private final AtomicLong abandonedSpawns = new AtomicLong();
+    private final Map<Long, CompletableFuture<Long>> pendingSpawns = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<ForkedProcess.Exit>> pendingExits = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<ForkedProcess.Exit>> exitsByPid = new ConcurrentHashMap<>();
+
+    private Process server;
+    private BufferedWriter control;
+
+    public boolean isEnabled() {
+        return enabled && !System.getProperty("os.name").toLowerCase().startsWith("windows");
+    }
+
+    public Process spawn(Path script, Path workDir) {
+        if (!isEnabled()) return null;
+
+        long id = requestIds.incrementAndGet();
+        CompletableFuture<Long> pid = new CompletableFuture<>();
+        CompletableFuture<ForkedProcess.Exit> exit = new CompletableFuture<>();
+        pendingSpawns.put(id, pid);
+        pendingExits.put(id, exit);
+        try {
+            String request = objectMapper.writeValueAsString(Map.of(
+                    "id", id,
+                    "script", script.toAbsolutePath().toString(),
+                    "cwd", workDir.toAbsolutePath().toString()));
+            synchronized (this) {
+                ensureStarted();
+                control.write(request);
+                control.newLine();
+                control.flush();
+            }
+            long childPid = pid.get(SPAWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return new ForkedProcess(childPid, exit, workDir, this, processIoExecutor.getExecutor(),
+                    TimeUnit.SECONDS.toMillis(SPAWN_TIMEOUT_SECONDS));
+        } catch (Exception e) {
+            System.err.println("Python fork server unavailable, spawning instead: " + e.getMessage());
+            pendingExits.remove(id);
+            // A pid that turns up after this is killed by the reply reader; one that just made it is killed here
+            if (!pid.completeExceptionally(e) && !pid.isCompletedExceptionally()) {
+                killAbandoned(pid.join());
+            }
+            return null;
+        } finally {
+            pendingSpawns.remove(id);
+        }
+    }
+
+    /**
+     * Signals the process group of a forked child, which includes anything it started.
+     *
+     * @return false if the fork server is not running, so the caller has to fall back to the pid
+     */
+    boolean kill(long pid, int signal) {
+        try {
+            String request = objectMapper.writeValueAsString(Map.of("kill", pid, "signal", signal));
+            synchronized (this) {
+                if (server == null || !server.isAlive()) return false;
+                control.write(request);
+                control.newLine();
+                control.flush();
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Off the reply reader, the write must not wait on a server that is itself waiting for us to read
+    private void killAbandoned(long pid) {
+        abandonedSpawns.incrementAndGet();
+        try {
+            processIoExecutor.getExecutor().execute(() -> kill(pid, ForkedProcess.SIGKILL));
+        } catch (RejectedExecutionException e) {
+            ProcessHandle.of(pid).ifPresent(ProcessHandle::destroyForcibly);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Process current = server;
+        return Map.of(
+                "enabled", isEnabled(),
+                "running", current != null && current.isAlive(),
+                "liveChildren", exitsByPid.size(),
+                "abandonedSpawns", abandonedSpawns.get());
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        enabled = false;
+        if (server != null) {
+            server.destroyForcibly();
+        }
+    }
+
+    private void ensureStarted() throws IOException {
+        if (server != null && server.isAlive()) return;
+
+        Path script = Paths.get(System.getProperty("java.io.tmpdir"), "smartproctor", "python_fork_server.py");
+        Files.createDirectories(script.getParent());
+        try (InputStream is = getClass().getResourceAsStream("/runner/python_fork_server.py")) {
+            if (is == null) throw new FileNotFoundException("runner/python_fork_server.py");
+            Files.copy(is, script, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        ProcessBuilder pb = new ProcessBuilder(pythonCommand, "-u", script.toString());
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = pb.start();
+        BufferedReader replies = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String ready = replies.readLine();
+        if (ready == null || !objectMapper.readTree(ready).path("ready").asBoolean()) {
+            process.destroyForcibly();
+            throw new IOException("Fork server failed to start");
+        }
+
+        server = process;
+        control = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        Thread reader = new Thread(() -> readReplies(process, replies), "python-fork-server");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void readReplies(Process process, BufferedReader replies) {
+        try {
+            String line;
+            while ((line = replies.readLine()) != null) {
+                JsonNode reply = objectMapper.readTree(line);
+                if (reply.has("exit")) {
+                    CompletableFuture<ForkedProcess.Exit> exit = exitsByPid.remove(reply.get("pid").asLong());
+                    if (exit != null) {
+                        exit.complete(new ForkedProcess.Exit(reply.get("exit").asInt(), reply.path("user_ms").asLong(),
+                                reply.path("sys_ms").asLong(), reply.path("maxrss_kb").asLong()));
+                    }
+                    continue;
+                }
+
+                long id = reply.path("id").asLong();
+                CompletableFuture<Long> pid = pendingSpawns.get(id);
+                CompletableFuture<ForkedProcess.Exit> exit = pendingExits.remove(id);
+                if (reply.has("error")) {
+                    if (pid != null) pid.completeExceptionally(new IOException(reply.get("error").asText()));
+                } else {
+                    long childPid = reply.get("pid").asLong();
+                    // Registered here, before any later exit line for this pid is read
+                    if (exit != null) exitsByPid.put(childPid, exit);
+                    if (pid == null || !pid.complete(childPid)) {
+                        // spawn() stopped waiting, nobody will open this child's FIFOs
+                        killAbandoned(childPid);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Server went away
+        } finally {
+            process.destroyForcibly();
+            // Children of a dead server can't be tracked anymore, so kill them and release their waiters
+            exitsByPid.forEach((pid, exit) -> {
+                ProcessHandle.of(pid).ifPresent(child -> {
+                    child.descendants().forEach(ProcessHandle::destroyForcibly);
+                    child.destroyForcibly();
+                });
+                exit.complete(ForkedProcess.Exit.LOST);
+            });
+            exitsByPid.clear();
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.labqms.backend.service;
 import com.labqms.backend.model.Question;
 import com.labqms.backend.repository.QuestionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,21 +17,37 @@ public class QuestionService {
     @Autowired
     private QuestionRepository questionRepository;
 
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Options are loaded before returning; with open-in-view off nothing lazy survives the transaction
+    @Transactional(readOnly = true)
     public List<Question> getAllQuestions() {
-        return questionRepository.findAll();
+        List<Question> questions = questionRepository.findAll();
+        questions.forEach(q -> Hibernate.initialize(q.getOptions()));
+        return questions;
     }
 
+    @Transactional(readOnly = true)
     public Optional<Question> getQuestionById(String id) {
-        return questionRepository.findById(id);
+        Optional<Question> question = questionRepository.findById(id);
+        question.ifPresent(q -> Hibernate.initialize(q.getOptions()));
+        return question;
     }
 
     public Question createQuestion(Question question) {
         if (question.getId() == null || question.getId().isEmpty()) {
             question.setId("q-" + UUID.randomUUID().toString());
         }
-        return questionRepository.save(question);
+        Question saved = questionRepository.save(question);
+        entityCacheService.evictQuestion(saved.getId());
+        return saved;
     }
 
+    @Transactional
     public Question updateQuestion(String id, Question questionDetails) {
         return questionRepository.findById(id).map(question -> {
             question.setText(questionDetails.getText());
@@ -51,11 +70,16 @@ public class QuestionService {
             question.setExplanation(questionDetails.getExplanation());
             question.setMarkingScheme(questionDetails.getMarkingScheme());
             
+            entityCacheService.evictQuestion(id);
+            eventPublisher.publishEvent(new PaperChangedEvent(null));
             return questionRepository.save(question);
         }).orElseThrow(() -> new RuntimeException("Question not found with id " + id));
     }
 
     public void deleteQuestion(String id) {
         questionRepository.deleteById(id);
+        entityCacheService.evictQuestion(id);
+        entityCacheService.evictAllPaperQuestions();
+        eventPublisher.publishEvent(new PaperChangedEvent(null));
     }
 }
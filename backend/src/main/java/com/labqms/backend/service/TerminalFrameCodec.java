@@ -0,0 +1,54 @@
+package com.labqms.backend.service;
+
+import com.labqms.backend.model.TerminalMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary frames of the raw WebSocket terminal ({@code /ws-terminal-raw}).
+ *
+ * <pre>
+ * server to client:  [type:1][seq:8][exitCode:4, EXIT only][UTF-8 text]
+ * client to server:  [type:1][payload]
+ * </pre>
+ *
+ * seq is the scrollback position of the message, 0 for notices that aren't part of it.
+ * Client payloads: START carries the same JSON as the STOMP start message, INPUT the typed
+ * text, RESUME an 8 byte last seen seq, INPUT_MODE one byte (1 = raw), STOP nothing.
+ */
+public final class TerminalFrameCodec {
+
+    public static final byte OUTPUT = 0x01;
+    public static final byte STATUS = 0x02;
+    public static final byte EXIT = 0x03;
+
+    public static final byte START = 0x10;
+    public static final byte INPUT = 0x11;
+    public static final byte STOP = 0x12;
+    public static final byte RESUME = 0x13;
+    public static final byte INPUT_MODE = 0x14;
+
+    private static final int HEADER_BYTES = 1 + 8;
+
+    private TerminalFrameCodec() {
+    }
+
+    public static ByteBuffer encode(TerminalMessage message) {
+        byte[] text = message.getContent() == null ? new byte[0] : message.getContent().getBytes(StandardCharsets.UTF_8);
+        boolean exit = message.getExitCode() != null;
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + (exit ? 4 : 0) + text.length);
+        frame.put(exit ? EXIT : "status".equals(message.getType()) ? STATUS : OUTPUT);
+        frame.putLong(message.getSeq() == null ? 0 : message.getSeq());
+        if (exit) {
+            frame.putInt(message.getExitCode());
+        }
+        frame.put(text);
+        return frame.flip();
+    }
+
+    /** The text after the type byte of a client frame. */
+    public static String text(ByteBuffer frame) {
+        return StandardCharsets.UTF_8.decode(frame.position(1)).toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.labqms.backend.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Collects a session's program output into terminal frames. A frame is sent once it reaches
+ * the size limit or once the oldest pending output is older than the delay, whichever comes
+ * first, so a print loop produces a few large frames instead of one per read().
+ * Line endings are converted for xterm.js ({@code \n} to {@code \r\n}) while copying into the frame.
+ *
+ * <p>Frames go to the sink outside the buffer lock and in order, so a slow send holds up only
+ * this session's output. The delayed flush only fires on the timer and runs on the sender.
+ */
+class TerminalOutputCoalescer {
+
+    // Shared across sessions for the stats endpoint
+    static final AtomicLong READS = new AtomicLong();
+    static final AtomicLong FRAMES = new AtomicLong();
+    static final AtomicLong CHARS = new AtomicLong();
+
+    private final Consumer<String> sink;
+    private final int maxFrameChars;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService timer;
+    private final Executor sender;
+
+    // Guarded by this
+    private final StringBuilder pending = new StringBuilder();
+    private final Deque<String> ready = new ArrayDeque<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    // Held while frames go to the sink, so they leave in the order they were cut
+    private final Object sendLock = new Object();
+
+    TerminalOutputCoalescer(Consumer<String> sink, int maxFrameChars, long maxDelayMillis,
+                            ScheduledExecutorService timer, Executor sender) {
+        this.sink = sink;
+        this.maxFrameChars = maxFrameChars;
+        this.maxDelayMillis = maxDelayMillis;
+        this.timer = timer;
+        this.sender = sender;
+    }
+
+    /** One per output stream, so a {@code \r\n} split across two reads is recognised. */
+    Stream newStream() {
+        return new Stream();
+    }
+
+    /** Sends everything collected so far, including a partial frame. */
+    void flush() {
+        send(true);
+    }
+
+    private void send(boolean includePending) {
+        synchronized (sendLock) {
+            while (true) {
+                String frame;
+                synchronized (this) {
+                    if (includePending) {
+                        cutFrame();
+                        if (scheduledFlush != null) {
+                            scheduledFlush.cancel(false);
+                            scheduledFlush = null;
+                        }
+                    }
+                    frame = ready.pollFirst();
+                }
+                if (frame == null) return;
+                FRAMES.incrementAndGet();
+                CHARS.addAndGet(frame.length());
+                sink.accept(frame);
+            }
+        }
+    }
+
+    // Returns whether full frames are waiting to be sent
+    private synchronized boolean append(Stream stream, char[] chars, int length) {
+        READS.incrementAndGet();
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c == '\n' && !stream.lastWasCr) {
+                pending.append('\r');
+            }
+            pending.append(c);
+            stream.lastWasCr = c == '\r';
+
+            if (pending.length() >= maxFrameChars) {
+                cutFrame();
+            }
+        }
+        if (pending.length() > 0 && scheduledFlush == null) {
+            scheduledFlush = timer.schedule(this::flushOnSender, maxDelayMillis, TimeUnit.MILLISECONDS);
+        }
+        return !ready.isEmpty();
+    }
+
+    private void cutFrame() {
+        if (pending.length() == 0) return;
+        ready.addLast(pending.toString());
+        pending.setLength(0);
+    }
+
+    private void flushOnSender() {
+        try {
+            sender.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, send from the timer rather than lose the output
+            flush();
+        }
+    }
+
+    class Stream {
+        private boolean lastWasCr;
+
+        void write(char[] chars, int length) {
+            if (append(this, chars, length)) {
+                send(false);
+            }
+        }
+    }
+}
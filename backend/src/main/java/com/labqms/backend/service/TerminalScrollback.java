@@ -0,0 +1,63 @@
+package com.labqms.backend.service;
+
+import com.labqms.backend.model.TerminalMessage;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * The most recent terminal messages of a session, numbered in send order. A client that lost
+ * its connection reports the last number it saw and gets everything after it replayed, as long
+ * as that is still in the buffer. Size is bounded by the characters held, oldest dropped first.
+ */
+class TerminalScrollback {
+
+    private final int maxChars;
+    private final Deque<TerminalMessage> messages = new ArrayDeque<>();
+    private long nextSeq = 1;
+    private long heldChars;
+
+    TerminalScrollback(int maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Numbers and stores the message, then hands it to {@code sender} while still holding the
+     * lock, so sequence numbers are handed over in order and never interleave with a replay.
+     * That order holds on the wire only as long as the sender and the replay's sender deliver to
+     * a connection in the order they are called, as the session-keyed outbound lanes do.
+     */
+    synchronized void append(TerminalMessage message, Consumer<TerminalMessage> sender) {
+        message.setSeq(nextSeq++);
+        messages.addLast(message);
+        heldChars += sizeOf(message);
+        while (heldChars > maxChars && messages.size() > 1) {
+            heldChars -= sizeOf(messages.removeFirst());
+        }
+        sender.accept(message);
+    }
+
+    /**
+     * Re-sends everything after {@code lastSeq}. If part of that was already dropped,
+     * {@code onGap} runs first so the client can say so.
+     */
+    synchronized void replay(long lastSeq, Runnable onGap, Consumer<TerminalMessage> sender) {
+        if (!messages.isEmpty() && messages.peekFirst().getSeq() > lastSeq + 1) {
+            onGap.run();
+        }
+        for (TerminalMessage message : messages) {
+            if (message.getSeq() > lastSeq) {
+                sender.accept(message);
+            }
+        }
+    }
+
+    synchronized long getLastSeq() {
+        return nextSeq - 1;
+    }
+
+    private static long sizeOf(TerminalMessage message) {
+        return (message.getContent() == null ? 0 : message.getContent().length()) + 32;
+    }
+}
@@ -1,11 +1,19 @@
 package com.labqms.backend.service;
 
+import com.labqms.backend.model.Question;
 import com.labqms.backend.model.Test;
+import com.labqms.backend.model.TestSummary;
+import com.labqms.backend.model.TestSummaryPage;
 import com.labqms.backend.repository.TestRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -14,14 +22,46 @@ public class TestService {
     @Autowired
     private TestRepository testRepository;
 
+    @Transactional(readOnly = true)
     public List<Test> getAllTests() {
-        return testRepository.findAll();
+        return initialize(testRepository.findAll());
     }
 
+    @Transactional(readOnly = true)
     public List<Test> getTestsByStudent(String studentId) {
-        return testRepository.findByStudentId(studentId);
+        return initialize(testRepository.findByStudentId(studentId));
     }
 
+    /**
+     * One page of result summaries, newest first. The cursor is the opaque nextCursor of the
+     * previous page, null for the first one.
+     */
+    public TestSummaryPage getSummaries(String studentId, String paperId, String cursor, int limit) {
+        LocalDateTime afterSubmittedAt = null;
+        String afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] parts = decodeCursor(cursor);
+            afterSubmittedAt = LocalDateTime.parse(parts[0]);
+            afterId = parts[1];
+        }
+        // One extra row tells whether there is a next page
+        List<TestSummary> rows = testRepository.findSummaries(studentId, paperId, afterSubmittedAt, afterId, limit + 1);
+        if (rows.size() <= limit) {
+            return new TestSummaryPage(rows, null);
+        }
+        List<TestSummary> page = rows.subList(0, limit);
+        TestSummary last = page.get(limit - 1);
+        return new TestSummaryPage(page, encodeCursor(last.getSubmittedAt(), last.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Test> getTest(String id) {
+        Optional<Test> test = testRepository.findWithAnswersById(id);
+        test.ifPresent(this::initialize);
+        return test;
+    }
+
+    @Transactional
     public Test submitTest(Test test) {
         // Check for existing submission for this student and paper
         if (test.getStudentId() != null && test.getPaper() != null) {
@@ -34,7 +74,7 @@ public class TestService {
                 existingTest.setSubmittedAt(LocalDateTime.now());
                 existingTest.setAiEvaluations(test.getAiEvaluations());
                 existingTest.setStatus(test.getStatus()); // Update status
-                return testRepository.save(existingTest);
+                return initialize(testRepository.save(existingTest));
             }
         }
 
@@ -42,6 +82,42 @@ public class TestService {
             test.setId("test-" + UUID.randomUUID().toString().substring(0, 8));
         }
         test.setSubmittedAt(LocalDateTime.now());
-        return testRepository.save(test);
+        return initialize(testRepository.save(test));
+    }
+
+    // Tests are still returned as entities, so everything they serialize is loaded while the
+    // session is open; the batch-size hints keep this to a handful of queries per page
+    private List<Test> initialize(List<Test> tests) {
+        tests.forEach(this::initialize);
+        return tests;
+    }
+
+    private Test initialize(Test test) {
+        Hibernate.initialize(test.getAnswers());
+        if (test.getPaper() != null) {
+            Hibernate.initialize(test.getPaper().getQuestions());
+            if (test.getPaper().getQuestions() != null) {
+                for (Question question : test.getPaper().getQuestions()) {
+                    Hibernate.initialize(question.getOptions());
+                }
+            }
+        }
+        return test;
+    }
+
+    private static String encodeCursor(LocalDateTime submittedAt, String id) {
+        String raw = submittedAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep < 0) throw new IllegalArgumentException("Invalid cursor");
+            return new String[] { raw.substring(0, sep), raw.substring(sep + 1) };
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
     }
 }
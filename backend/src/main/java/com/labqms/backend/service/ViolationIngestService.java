@@ -0,0 +1,311 @@
+package com.labqms.backend.service;
+
+import com.labqms.backend.model.Violation;
+import com.labqms.backend.repository.ViolationRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind buffer for proctoring violations. Events are accepted into a bounded queue and
+ * acknowledged (and broadcast by the caller) right away; one writer thread stores them in batched
+ * inserts every {@code flush-interval-ms} or {@code flush-max-events}, whichever comes first.
+ *
+ * <p>A full queue makes HTTP producers wait up to {@code offer-timeout-ms}, after which the event
+ * is refused so the client can retry; STOMP producers are refused at once, they run on the inbound
+ * lanes. A batch that can't be written stays pending and is retried with backoff (up to
+ * {@code retry-max-backoff-ms}) until it is stored or the service shuts down. On shutdown new
+ * events are refused and everything already accepted is written before the repository goes away.
+ *
+ * <p>The buffer keeps its own copy of each event, so the caller's instance can be broadcast and
+ * returned while the writer assigns ids. Batches commit under a lock that {@link #getByPaper}
+ * also takes, which lists every accepted violation exactly once, stored or not.
+ */
+@Service
+public class ViolationIngestService {
+
+    private static final String SEQUENCE_TABLE = "violation_seq";
+
+    @Autowired
+    private ViolationRepository violationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${proctoring.violations.buffer-capacity:10000}")
+    private int bufferCapacity;
+
+    @Value("${proctoring.violations.flush-interval-ms:200}")
+    private long flushIntervalMillis;
+
+    @Value("${proctoring.violations.flush-max-events:100}")
+    private int flushMaxEvents;
+
+    @Value("${proctoring.violations.offer-timeout-ms:2000}")
+    private long offerTimeoutMillis;
+
+    @Value("${proctoring.violations.retry-max-backoff-ms:30000}")
+    private long retryMaxBackoffMillis;
+
+    @Value("${proctoring.violations.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMillis;
+
+    private BlockingQueue<Violation> buffer;
+    private Thread writer;
+    private volatile boolean accepting = true;
+    // Released on shutdown, cuts a retry backoff short
+    private final CountDownLatch stopping = new CountDownLatch(1);
+    // Everything accepted and not yet committed, in arrival order; only changed with the commit lock held for writing
+    private final Queue<Violation> unsaved = new ConcurrentLinkedQueue<>();
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile long lastFlushMillis;
+
+    @PostConstruct
+    public void start() {
+        alignSequence();
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        writer = new Thread(this::writeLoop, "violation-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Accepts a violation for storage. Blocks while the buffer is full, up to the offer timeout.
+     *
+     * @return false if the buffer stayed full or the service is shutting down
+     */
+    public boolean submit(Violation violation) {
+        return accept(violation, offerTimeoutMillis);
+    }
+
+    /** Same as {@link #submit} without waiting, for callers on a message channel thread. */
+    public boolean trySubmit(Violation violation) {
+        return accept(violation, 0);
+    }
+
+    private boolean accept(Violation violation, long timeoutMillis) {
+        violation.setTimestamp(LocalDateTime.now());
+        if (!accepting) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        Violation copy = new Violation(violation);
+        // Listed before it can reach the writer, so a commit never finds it missing
+        unsaved.add(copy);
+        try {
+            if (buffer.offer(copy, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                accepted.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        unsaved.remove(copy);
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Stored violations of a paper plus those still waiting to be written. No batch commits while
+     * this reads, so nothing is listed twice or missed; pending ones are copies without an id.
+     */
+    public List<Violation> getByPaper(String paperId) {
+        commitLock.readLock().lock();
+        try {
+            List<Violation> violations = new ArrayList<>(violationRepository.findByPaperId(paperId));
+            for (Violation violation : unsaved) {
+                if (paperId.equals(violation.getPaperId())) {
+                    Violation pending = new Violation(violation);
+                    pending.setId(null); // may be one from an uncommitted attempt
+                    violations.add(pending);
+                }
+            }
+            return violations;
+        } finally {
+            commitLock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("buffered", buffer.size());
+        stats.put("pending", unsaved.size());
+        stats.put("capacity", bufferCapacity);
+        stats.put("accepted", accepted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("stored", stored.get());
+        stats.put("retries", retries.get());
+        stats.put("failed", failed.get());
+        stats.put("batches", batches.get());
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("lastFlushMillis", lastFlushMillis);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // No interrupt, it could abort a batch halfway through JDBC; the writer sees the flag
+        // within one flush interval and drains the rest
+        accepting = false;
+        stopping.countDown();
+        writer.join(shutdownTimeoutMillis);
+        int left = unsaved.size();
+        if (left > 0) {
+            System.err.println("Violation writer stopped with " + left + " violations unsaved");
+        }
+    }
+
+    private void writeLoop() {
+        List<Violation> batch = new ArrayList<>(flushMaxEvents);
+        while (accepting || !buffer.isEmpty()) {
+            try {
+                Violation first = buffer.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                // Collect until the batch is full or the oldest event has waited the flush interval
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < flushMaxEvents && accepting) {
+                    buffer.drainTo(batch, flushMaxEvents - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= flushMaxEvents || remaining <= 0) break;
+                    Violation next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            buffer.drainTo(batch, flushMaxEvents - batch.size());
+            if (!batch.isEmpty()) {
+                writeWithRetry(batch);
+                batch = new ArrayList<>(flushMaxEvents);
+            }
+        }
+    }
+
+    // The batch stays unsaved, and so listed by getByPaper, until it is written or given up at shutdown
+    private void writeWithRetry(List<Violation> batch) {
+        long backoff = flushIntervalMillis;
+        while (!flush(batch)) {
+            if (!accepting) {
+                failed.addAndGet(batch.size());
+                forget(batch);
+                System.err.println("Gave up on " + batch.size() + " violations at shutdown");
+                return;
+            }
+            retries.incrementAndGet();
+            try {
+                stopping.await(backoff, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff = Math.min(backoff * 2, retryMaxBackoffMillis);
+        }
+    }
+
+    private void forget(List<Violation> violations) {
+        commitLock.writeLock().lock();
+        try {
+            violations.forEach(unsaved::remove);
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    // False if the batch, or what is left of it, should be tried again later. Commits and leaves
+    // unsaved in one step as far as getByPaper can tell
+    private boolean flush(List<Violation> batch) {
+        long start = System.nanoTime();
+        int size = batch.size();
+        commitLock.writeLock().lock();
+        try {
+            violationRepository.saveAll(batch);
+            stored.addAndGet(batch.size());
+            batch.forEach(unsaved::remove);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Some row is refused and would be again, find it instead of retrying the whole batch
+            batch.forEach(violation -> violation.setId(null));
+            return saveOneByOne(batch);
+        } catch (Exception e) {
+            // Ids handed out by the failed attempt are discarded, the retry gets fresh ones
+            batch.forEach(violation -> violation.setId(null));
+            System.err.println("Failed to store " + batch.size() + " violations, will retry: " + e.getMessage());
+            return false;
+        } finally {
+            commitLock.writeLock().unlock();
+            batches.incrementAndGet();
+            lastBatchSize = size;
+            lastFlushMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    // Drops the violations the database refuses; stops at any other failure and leaves the rest in the batch
+    private boolean saveOneByOne(List<Violation> batch) {
+        Iterator<Violation> it = batch.iterator();
+        while (it.hasNext()) {
+            Violation violation = it.next();
+            try {
+                violationRepository.save(violation);
+                stored.incrementAndGet();
+            } catch (DataIntegrityViolationException e) {
+                failed.incrementAndGet();
+                System.err.println("Violation refused by the database, dropped: " + e.getMessage());
+            } catch (Exception e) {
+                violation.setId(null);
+                System.err.println("Failed to store " + batch.size() + " violations, will retry: " + e.getMessage());
+                return false;
+            }
+            unsaved.remove(violation);
+            it.remove();
+        }
+        return true;
+    }
+
+    /*
+     * Ids now come from a pooled sequence so inserts can be batched (IDENTITY forces one insert per
+     * round-trip). MySQL has no sequences and Hibernate emulates this one with a table; on a database
+     * that already has IDENTITY-generated rows it starts at 1, so move it past the highest id first.
+     * Databases with real sequences have no such table and are left alone.
+     */
+    private void alignSequence() {
+        try {
+            Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from violations", Long.class);
+            long next = (maxId == null ? 0 : maxId) + Violation.ID_ALLOCATION_SIZE + 1;
+            jdbcTemplate.update("update " + SEQUENCE_TABLE + " set next_val = ? where next_val < ?", next, next);
+        } catch (DataAccessException e) {
+            // Expected where the database has native sequences (no such table)
+            System.err.println("Violation id sequence not aligned: " + e.getMessage());
+        }
+    }
+}
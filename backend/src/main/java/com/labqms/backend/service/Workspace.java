@@ -0,0 +1,72 @@
+package com.labqms.backend.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A scratch directory leased from the {@link WorkspaceManager} for one run or session.
+ * Closing it hands the directory back; it is emptied off the request path and reused.
+ */
+public class Workspace implements AutoCloseable {
+
+    private final WorkspaceManager manager;
+    private final Path dir;
+    private final Set<Process> processes = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean quotaExceeded;
+
+    Workspace(WorkspaceManager manager, Path dir) {
+        this.manager = manager;
+        this.dir = dir;
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    /** Processes writing into this workspace; they are killed if it goes over its disk quota. */
+    public void watch(Process process) {
+        processes.add(process);
+        if (quotaExceeded) {
+            process.destroyForcibly();
+        }
+    }
+
+    /** Empties the directory while keeping the lease, for holders that run several jobs in it. */
+    public void clear() throws IOException {
+        WorkspaceManager.deleteContents(dir);
+    }
+
+    /**
+     * A file for output that overflows memory, outside the directory so programs can't reach it
+     * through a relative path or have it left out of the quota. The caller deletes it.
+     */
+    public Path spillFile(String name) {
+        return manager.spillFile(this, name);
+    }
+
+    public boolean isQuotaExceeded() {
+        return quotaExceeded;
+    }
+
+    public long getQuotaBytes() {
+        return manager.getQuotaBytes();
+    }
+
+    void exceedQuota() {
+        quotaExceeded = true;
+        for (Process process : processes) {
+            process.destroyForcibly();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            manager.release(this);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.labqms.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Hands out scratch directories for runs from a pool of pre-created ones. Released directories
+ * are emptied on a background thread and go back to the pool, so a run never waits on a
+ * recursive delete. Active workspaces are checked against a disk quota and their processes
+ * killed when over it.
+ *
+ * <p>The quota is enforced by polling, so a fast writer can go past it between two checks. That
+ * is why workspaces live on disk unless memory-backed is switched on: on /dev/shm the overshoot
+ * is RAM, bounded only by the size of that tmpfs.
+ *
+ * <p>Output spill files live next to the workspaces rather than in them, where programs could
+ * write to them without being counted. The manager only ever deletes directories it created.
+ */
+@Service
+public class WorkspaceManager {
+
+    private static final long QUOTA_CHECK_INTERVAL_MILLIS = 200;
+    private static final String WORKSPACE_PREFIX = "ws-";
+    private static final String SPILL_DIR = "spill";
+    // Created inside a configured root, which may hold other things
+    private static final String MANAGED_DIR = "smartproctor-workspaces";
+
+    // Blank means java.io.tmpdir, or /dev/shm when memory-backed is on and it is usable
+    @Value("${coderunner.workspace.root:}")
+    private String configuredRoot;
+
+    @Value("${coderunner.workspace.memory-backed:false}")
+    private boolean memoryBackedRequested;
+
+    @Value("${coderunner.workspace.pool-size:16}")
+    private int poolSize;
+
+    @Value("${coderunner.workspace.quota-bytes:67108864}")
+    private long quotaBytes;
+
+    private Path root;
+    private Path spillRoot;
+    private boolean memoryBacked;
+
+    // Most recently released first, its directory entries are the likeliest to still be cached
+    private final Deque<Path> idle = new ConcurrentLinkedDeque<>();
+    private final Set<Workspace> active = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong quotaKills = new AtomicLong();
+    private final AtomicLong cleanupFailures = new AtomicLong();
+
+    private final ScheduledExecutorService housekeeper = Executors.newScheduledThreadPool(2, r -> {
+        Thread t = new Thread(r, "workspace-housekeeper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void start() throws IOException {
+        root = resolveRoot();
+        Files.createDirectories(root);
+        removeLeftovers();
+        spillRoot = Files.createDirectories(root.resolve(SPILL_DIR));
+        for (int i = 0; i < poolSize; i++) {
+            idle.offer(newDirectory());
+        }
+        housekeeper.scheduleWithFixedDelay(this::enforceQuota,
+                QUOTA_CHECK_INTERVAL_MILLIS, QUOTA_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        housekeeper.shutdownNow();
+    }
+
+    public Workspace acquire() throws IOException {
+        Path dir = idle.pollFirst();
+        if (dir != null && Files.isDirectory(dir)) {
+            reused.incrementAndGet();
+        } else {
+            dir = newDirectory();
+        }
+        Workspace workspace = new Workspace(this, dir);
+        active.add(workspace);
+        return workspace;
+    }
+
+    public long getQuotaBytes() {
+        return quotaBytes;
+    }
+
+    Path spillFile(Workspace workspace, String name) {
+        return spillRoot.resolve(workspace.getDir().getFileName() + "-" + name);
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "root", root.toString(),
+                "memoryBacked", memoryBacked,
+                "active", active.size(),
+                "idle", idle.size(),
+                "created", created.get(),
+                "reused", reused.get(),
+                "quotaKills", quotaKills.get(),
+                "cleanupFailures", cleanupFailures.get());
+    }
+
+    void release(Workspace workspace) {
+        active.remove(workspace);
+        try {
+            housekeeper.execute(() -> recycle(workspace.getDir()));
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the next start clears the root anyway
+        }
+    }
+
+    private void recycle(Path dir) {
+        try {
+            deleteContents(dir);
+            if (idle.size() < poolSize) {
+                idle.offerFirst(dir);
+            } else {
+                Files.delete(dir);
+            }
+        } catch (IOException e) {
+            cleanupFailures.incrementAndGet();
+            System.err.println("Failed to clean workspace " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private void enforceQuota() {
+        for (Workspace workspace : active) {
+            if (!workspace.isQuotaExceeded() && usedBytes(workspace.getDir()) > quotaBytes) {
+                quotaKills.incrementAndGet();
+                workspace.exceedQuota();
+            }
+        }
+    }
+
+    private static long usedBytes(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.mapToLong(p -> {
+                        try {
+                            return Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS) ? Files.size(p) : 0;
+                        } catch (IOException e) {
+                            return 0; // deleted while walking
+                        }
+                    })
+                    .sum();
+        } catch (IOException | UncheckedIOException e) {
+            return 0;
+        }
+    }
+
+    private Path newDirectory() throws IOException {
+        created.incrementAndGet();
+        return Files.createDirectories(root.resolve(WORKSPACE_PREFIX + sequence.incrementAndGet()));
+    }
+
+    private Path resolveRoot() {
+        if (configuredRoot != null && !configuredRoot.isBlank()) {
+            return Paths.get(configuredRoot).resolve(MANAGED_DIR);
+        }
+        Path shm = Paths.get("/dev/shm");
+        if (memoryBackedRequested && Files.isDirectory(shm) && Files.isWritable(shm) && allowsExec(shm)) {
+            memoryBacked = true;
+            return shm.resolve("smartproctor");
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "smartproctor", "workspaces");
+    }
+
+    // Workspaces and spill files of a previous run of the server; anything else is left alone
+    private void removeLeftovers() throws IOException {
+        try (Stream<Path> entries = Files.list(root)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                String name = entry.getFileName().toString();
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)
+                        && (name.startsWith(WORKSPACE_PREFIX) || name.equals(SPILL_DIR))) {
+                    deleteContents(entry);
+                    Files.delete(entry);
+                }
+            }
+        }
+    }
+
+    // C/C++ binaries run from the workspace, so a noexec mount is no use
+    private static boolean allowsExec(Path dir) {
+        Path probe = null;
+        try {
+            probe = Files.createTempFile(dir, "exec-probe", ".sh");
+            Files.writeString(probe, "#!/bin/sh\nexit 0\n");
+            if (!probe.toFile().setExecutable(true, true)) return false;
+            Process process = new ProcessBuilder(probe.toString()).start();
+            return process.waitFor(5, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (probe != null) {
+                probe.toFile().delete();
+            }
+        }
+    }
+
+    static void deleteContents(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                if (e != null) throw e;
+                if (!d.equals(dir)) {
+                    Files.delete(d);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,428 @@
+package com.labqms.backend.worker;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.Permission;
+import java.security.Permissions;
+import java.security.Policy;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PropertyPermission;
+
+/**
+ * Entry point of a pre-started worker JVM (see JavaWorkerPool).
+ *
+ * Runs in its own process with only the JDK on the classpath, so it must not reference
+ * any Spring or backend classes. Jobs arrive on stdin as length-prefixed frames:
+ *
+ *   int mode, UTF mainClass, int classCount, (UTF name, int length, bytes)*
+ *   BATCH only: int inputLength, bytes, long cpuLimitMillis, long wallLimitMillis, int stdoutLimit,
+ *               int stderrLimit
+ *
+ * A BATCH job replies with: int exitCode, boolean timedOut, boolean recycle, int outLength,
+ * bytes, int errLength, bytes, boolean truncated, long cpuUserNanos, long cpuTotalNanos,
+ * long peakHeapBytes. An INTERACTIVE job replies with a single ack int, then hands the real
+ * stdin/stdout/stderr to the program and exits with its exit code.
+ *
+ * The working directory (first argument) is a workspace leased by the pool, emptied between
+ * jobs. Job classes may only touch files in it; in particular they cannot open
+ * FileDescriptor.out, which carries the replies, nor reflect into the worker.
+ */
+public class ExecutionWorker {
+
+    public static final int READY = 0x4C41424A;
+    public static final int MODE_BATCH = 1;
+    public static final int MODE_INTERACTIVE = 2;
+    public static final String STDERR_MARKER = "\u0000worker-ready\n";
+
+    private static final PrintStream NULL_STREAM = new PrintStream(OutputStream.nullOutputStream());
+    private static final long SAMPLE_INTERVAL_MILLIS = 10;
+
+    private static Thread workerThread;
+    private static Path workDir;
+
+    public static void main(String[] args) throws Exception {
+        workerThread = Thread.currentThread();
+        workDir = Paths.get(args.length > 0 ? args[0] : "").toAbsolutePath();
+        DataInputStream in = new DataInputStream(new FileInputStream(FileDescriptor.in));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+
+        installExitTrap();
+        warmUp();
+
+        out.writeInt(READY);
+        out.flush();
+
+        while (true) {
+            int mode;
+            try {
+                mode = in.readInt();
+            } catch (EOFException e) {
+                return; // Pool closed our stdin
+            }
+
+            String mainClass = in.readUTF();
+            Map<String, byte[]> classes = readClasses(in);
+
+            if (mode == MODE_INTERACTIVE) {
+                out.writeInt(READY);
+                out.flush();
+                runInteractive(mainClass, classes, in);
+                return;
+            }
+
+            byte[] input = new byte[in.readInt()];
+            in.readFully(input);
+            long cpuLimitMillis = in.readLong();
+            long wallLimitMillis = in.readLong();
+            int stdoutLimit = in.readInt();
+            int stderrLimit = in.readInt();
+
+            boolean recycle = runBatch(mainClass, classes, input, cpuLimitMillis, wallLimitMillis, stdoutLimit, stderrLimit, out);
+            if (recycle) {
+                Runtime.getRuntime().halt(0);
+            }
+        }
+    }
+
+    private static boolean runBatch(String mainClass, Map<String, byte[]> classes, byte[] input, long cpuLimitMillis,
+                                    long wallLimitMillis, int stdoutLimit, int stderrLimit, DataOutputStream out) throws IOException {
+        CappedOutput stdout = new CappedOutput(stdoutLimit);
+        CappedOutput stderr = new CappedOutput(stderrLimit);
+        PrintStream jobOut = new PrintStream(stdout, true);
+        PrintStream jobErr = new PrintStream(stderr, true);
+
+        System.setIn(new ByteArrayInputStream(input));
+        System.setOut(jobOut);
+        System.setErr(jobErr);
+
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+
+        ThreadGroup group = new ThreadGroup("job");
+        JobRunner runner = new JobRunner(mainClass, classes, jobErr);
+        Thread thread = new Thread(group, runner, "main");
+        ProcessCpu cpu = new ProcessCpu();
+        thread.start();
+
+        // The limit is on CPU time, so a busy machine doesn't count against the student;
+        // the wall clock limit only catches programs blocked on something
+        boolean timedOut = false;
+        long wallDeadline = System.nanoTime() + wallLimitMillis * 1_000_000;
+        try {
+            while (thread.isAlive()) {
+                thread.join(SAMPLE_INTERVAL_MILLIS);
+                cpu.sample();
+                if (thread.isAlive() && (cpu.totalNanos > cpuLimitMillis * 1_000_000 || System.nanoTime() > wallDeadline)) {
+                    timedOut = true;
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            timedOut = true;
+        }
+        cpu.sample();
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        jobOut.flush();
+        jobErr.flush();
+        System.setIn(InputStream.nullInputStream());
+        System.setOut(NULL_STREAM);
+        System.setErr(NULL_STREAM);
+
+        // A job that timed out or left threads behind can't be cleaned up in place
+        boolean recycle = timedOut || group.activeCount() > 0;
+
+        out.writeInt(timedOut ? -1 : runner.exitCode);
+        out.writeBoolean(timedOut);
+        out.writeBoolean(recycle);
+        writeBytes(out, stdout.toByteArray());
+        writeBytes(out, stderr.toByteArray());
+        out.writeBoolean(stdout.truncated || stderr.truncated);
+        out.writeLong(cpu.userNanos);
+        out.writeLong(cpu.totalNanos);
+        out.writeLong(peakHeap);
+        out.flush();
+        return recycle;
+    }
+
+    private static void runInteractive(String mainClass, Map<String, byte[]> classes, InputStream in) {
+        PrintStream stdout = new PrintStream(new FileOutputStream(FileDescriptor.out), true);
+        PrintStream stderr = new PrintStream(new FileOutputStream(FileDescriptor.err), true);
+        System.setIn(in);
+        System.setOut(stdout);
+        System.setErr(stderr);
+
+        ThreadGroup group = new ThreadGroup("job");
+        JobRunner runner = new JobRunner(mainClass, classes, stderr);
+        Thread thread = new Thread(group, runner, "main");
+        thread.start();
+        try {
+            thread.join();
+            // Behave like a normal JVM: stay up while the program's own threads are running
+            Thread[] threads = new Thread[group.activeCount() + 1];
+            int count = group.enumerate(threads);
+            for (int i = 0; i < count; i++) {
+                if (!threads[i].isDaemon()) {
+                    threads[i].join();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stdout.flush();
+        stderr.flush();
+        Runtime.getRuntime().halt(runner.exitCode);
+    }
+
+    private static Map<String, byte[]> readClasses(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<String, byte[]> classes = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            classes.put(name, bytes);
+        }
+        return classes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @SuppressWarnings("removal")
+    private static void installExitTrap() {
+        // The JDK and the worker itself keep every permission; job classes carry their own,
+        // fixed set (JobClassLoader) which the policy is never asked about
+        Policy.setPolicy(new WorkerPolicy());
+        System.setSecurityManager(new ExitTrap());
+        // setSecurityManager prints a deprecation warning straight to fd 2. The pool skips
+        // stderr up to this marker so the warning never reaches an interactive session.
+        System.err.print(STDERR_MARKER);
+        System.err.flush();
+    }
+
+    // Touch the classes nearly every student program uses so the first job doesn't pay for them
+    private static void warmUp() {
+        new java.util.Scanner("1 2\nwarm").nextInt();
+        new java.util.ArrayList<>(java.util.List.of(1, 2, 3)).stream().mapToInt(Integer::intValue).sum();
+        String.format("%d %s %.2f", 1, "a", 1.5);
+        new StringBuilder().append(1).append('a').toString();
+        new java.util.HashMap<String, Integer>().merge("a", 1, Integer::sum);
+        new BufferedReader(new StringReader("x")).lines().count();
+    }
+
+    static class JobRunner implements Runnable {
+        private final String mainClass;
+        private final Map<String, byte[]> classes;
+        private final PrintStream err;
+        volatile int exitCode = 0;
+
+        JobRunner(String mainClass, Map<String, byte[]> classes, PrintStream err) {
+            this.mainClass = mainClass;
+            this.classes = classes;
+            this.err = err;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // Fresh loader per job: no statics survive between submissions, and the
+                // platform parent keeps the worker's own classes out of reach
+                ClassLoader loader = new JobClassLoader(classes);
+                Method main = loader.loadClass(mainClass).getMethod("main", String[].class);
+                main.invoke(null, (Object) new String[0]);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ExitException exit) {
+                    exitCode = exit.status;
+                } else {
+                    err.print("Exception in thread \"main\" ");
+                    cause.printStackTrace(err);
+                    exitCode = 1;
+                }
+            } catch (ExitException exit) {
+                exitCode = exit.status;
+            } catch (NoSuchMethodException e) {
+                err.println("Error: Main method not found in class " + mainClass);
+                exitCode = 1;
+            } catch (Throwable t) {
+                err.println("Error: " + t);
+                exitCode = 1;
+            }
+        }
+    }
+
+    /**
+     * CPU time of the whole worker process since the job started. Threads the job starts, the
+     * common ForkJoinPool behind parallel streams, and the JIT and GC working for the job all
+     * count, as they would for a program run with "java Main". Uses /proc/self/stat on Linux for
+     * the user/system split, elsewhere the JVM's process CPU time counted as user time.
+     */
+    static class ProcessCpu {
+        // USER_HZ, which is 100 on every mainstream Linux build
+        private static final long NANOS_PER_TICK = 10_000_000;
+        private static final Path STAT = Paths.get("/proc/self/stat");
+
+        private final long startUser;
+        private final long startTotal;
+        long userNanos;
+        long totalNanos;
+
+        ProcessCpu() {
+            long[] now = read();
+            startUser = now[0];
+            startTotal = now[1];
+        }
+
+        void sample() {
+            long[] now = read();
+            userNanos = Math.max(userNanos, now[0] - startUser);
+            totalNanos = Math.max(totalNanos, now[1] - startTotal);
+        }
+
+        private static long[] read() {
+            try {
+                String stat = new String(java.nio.file.Files.readAllBytes(STAT));
+                // The command name may contain spaces, so fields are counted from the closing paren
+                String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                long user = Long.parseLong(fields[11]) * NANOS_PER_TICK;
+                long system = Long.parseLong(fields[12]) * NANOS_PER_TICK;
+                return new long[] { user, user + system };
+            } catch (IOException | RuntimeException e) {
+                long total = ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                        .getProcessCpuTime();
+                return new long[] { total, total };
+            }
+        }
+    }
+
+    static class JobClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+        private final ProtectionDomain domain;
+
+        JobClassLoader(Map<String, byte[]> classes) {
+            super("job", ClassLoader.getPlatformClassLoader());
+            this.classes = classes;
+            this.domain = new ProtectionDomain(new CodeSource(null, (Certificate[]) null), jobPermissions());
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length, domain);
+        }
+
+        // Files in the workspace (relative paths resolve there too) and system properties, nothing else
+        private static Permissions jobPermissions() {
+            Permissions permissions = new Permissions();
+            permissions.add(new FilePermission(workDir.toString(), "read"));
+            permissions.add(new FilePermission(workDir.resolve("-").toString(), "read,write,delete"));
+            permissions.add(new FilePermission("-", "read,write,delete"));
+            permissions.add(new FilePermission(".", "read"));
+            permissions.add(new PropertyPermission("*", "read"));
+            return permissions;
+        }
+    }
+
+    // Named rather than anonymous: the pool copies only declared nested classes for the worker
+    @SuppressWarnings("removal")
+    static class WorkerPolicy extends Policy {
+        @Override
+        public boolean implies(ProtectionDomain domain, Permission permission) {
+            return true;
+        }
+    }
+
+    /**
+     * Turns System.exit() from student code into an exception so the worker survives it. Only the
+     * worker's own thread may end the JVM; job threads, and pool threads running job code (parallel
+     * streams), get the exception. All other checks go to the access controller as usual.
+     */
+    @SuppressWarnings("removal")
+    static class ExitTrap extends SecurityManager {
+        @Override
+        public void checkExit(int status) {
+            if (Thread.currentThread() != workerThread) {
+                throw new ExitException(status);
+            }
+        }
+    }
+
+    static class ExitException extends SecurityException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ExitException(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+
+    static class CappedOutput extends ByteArrayOutputStream {
+        private final int limit;
+        private boolean truncated;
+
+        CappedOutput(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (count < limit) {
+                super.write(b);
+            } else {
+                truncated = true;
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int room = Math.min(len, limit - count);
+            if (room > 0) {
+                super.write(b, off, room);
+            }
+            if (room < len) {
+                truncated = true;
+            }
+        }
+
+        @Override
+        public synchronized byte[] toByteArray() {
+            if (!truncated) {
+                return super.toByteArray();
+            }
+            byte[] marker = "\n[Output truncated]\n".getBytes();
+            byte[] bytes = new byte[count + marker.length];
+            System.arraycopy(buf, 0, bytes, 0, count);
+            System.arraycopy(marker, 0, bytes, count, marker.length);
+            return bytes;
+        }
+    }
+}
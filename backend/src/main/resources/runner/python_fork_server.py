@@ -0,0 +1,172 @@
+"""Fork server for student Python programs (see PythonForkServer.java).
+
+The parent imports the modules lab programs commonly use once, then forks a child per
+submission so a run starts from an already warm interpreter. The control channel is
+line-delimited JSON on stdin/stdout:
+
+  request:  {"id": 1, "script": "/ws/script.py", "cwd": "/ws"}
+  replies:  {"id": 1, "pid": 4242}            once the child is forked
+            {"id": 1, "error": "..."}         if it could not be
+            {"pid": 4242, "exit": 0, "user_ms": 12, "sys_ms": 3, "maxrss_kb": 9000}
+                                              once the child has been reaped
+  kill:     {"kill": 4242, "signal": 9}       signals the child's whole session, no reply
+
+Each child leads its own session and process group, so anything it starts can be signalled
+along with it; whatever is still running in the group when the child is reaped is killed.
+
+The child's stdin/stdout/stderr are the FIFOs stdin.fifo/stdout.fifo/stderr.fifo in cwd,
+which the Java side opens in that same order.
+"""
+import os
+import signal
+import sys
+import json
+import select
+
+# Preloaded so children don't pay for the imports
+import builtins, io, math, random, string, re, collections, itertools, functools, heapq, bisect  # noqa: E401,F401
+import statistics, datetime, time, decimal, fractions, copy, operator, typing, traceback  # noqa: E401,F401
+
+FIFOS = ("stdin.fifo", "stdout.fifo", "stderr.fifo")
+
+# Pids of unreaped children, the only process groups a kill request may target
+children = set()
+
+
+def send(message):
+    os.write(1, (json.dumps(message) + "\n").encode())
+
+
+def run_child(script, cwd):
+    signal.signal(signal.SIGCHLD, signal.SIG_DFL)
+    signal.set_wakeup_fd(-1)
+    os.setsid()
+    os.chdir(cwd)
+
+    # Same order as the Java side, otherwise the blocking FIFO opens deadlock
+    stdin = os.open(FIFOS[0], os.O_RDONLY)
+    stdout = os.open(FIFOS[1], os.O_WRONLY)
+    stderr = os.open(FIFOS[2], os.O_WRONLY)
+    for fd, target in ((stdin, 0), (stdout, 1), (stderr, 2)):
+        os.dup2(fd, target)
+        os.close(fd)
+
+    # The inherited sys.std* objects may still hold buffered control-channel data
+    sys.stdin = io.TextIOWrapper(io.FileIO(0, "r", closefd=False), encoding="utf-8")
+    sys.stdout = io.TextIOWrapper(io.FileIO(1, "w", closefd=False), encoding="utf-8", write_through=True)
+    sys.stderr = io.TextIOWrapper(io.FileIO(2, "w", closefd=False), encoding="utf-8", write_through=True)
+    sys.argv = [script]
+    sys.path[0] = cwd
+
+    code = 0
+    try:
+        with open(script, encoding="utf-8") as f:
+            compiled = compile(f.read(), script, "exec")
+        exec(compiled, {"__name__": "__main__", "__file__": script, "__builtins__": builtins})
+    except SystemExit as e:
+        if e.code is None:
+            code = 0
+        elif isinstance(e.code, int):
+            code = e.code
+        else:
+            print(e.code, file=sys.stderr)
+            code = 1
+    except BaseException as e:
+        # Drop this function's frame so the traceback starts at the student's module
+        traceback.print_exception(type(e), e, e.__traceback__.tb_next)
+        code = 1
+    finally:
+        try:
+            sys.stdout.flush()
+            sys.stderr.flush()
+        except Exception:
+            pass
+    os._exit(code & 0xFF)
+
+
+def spawn(request):
+    cwd = request["cwd"]
+    for name in FIFOS:
+        path = os.path.join(cwd, name)
+        if os.path.exists(path):
+            os.unlink(path)
+        os.mkfifo(path, 0o600)
+    pid = os.fork()
+    if pid == 0:
+        try:
+            run_child(request["script"], cwd)
+        finally:
+            os._exit(1)
+    children.add(pid)
+    return pid
+
+
+def kill_group(pid, signum):
+    try:
+        os.killpg(pid, signum)
+    except (ProcessLookupError, PermissionError):
+        pass
+
+
+def reap():
+    while True:
+        try:
+            pid, status, usage = os.wait4(-1, os.WNOHANG)
+        except ChildProcessError:
+            return
+        if pid == 0:
+            return
+        children.discard(pid)
+        # Background processes the program left behind die with it
+        kill_group(pid, signal.SIGKILL)
+        if os.WIFSIGNALED(status):
+            code = 128 + os.WTERMSIG(status)
+        else:
+            code = os.WEXITSTATUS(status)
+        # wait4 gives exact rusage for the child, ru_maxrss is in kilobytes on Linux
+        send({"pid": pid, "exit": code,
+              "user_ms": int(usage.ru_utime * 1000),
+              "sys_ms": int(usage.ru_stime * 1000),
+              "maxrss_kb": usage.ru_maxrss})
+
+
+def main():
+    wakeup_r, wakeup_w = os.pipe()
+    os.set_blocking(wakeup_w, False)
+    signal.set_wakeup_fd(wakeup_w)
+    signal.signal(signal.SIGCHLD, lambda signum, frame: None)
+
+    send({"ready": True})
+    pending = b""
+    while True:
+        try:
+            readable, _, _ = select.select([0, wakeup_r], [], [])
+        except InterruptedError:
+            continue
+        if wakeup_r in readable:
+            os.read(wakeup_r, 512)
+            reap()
+        if 0 in readable:
+            chunk = os.read(0, 65536)
+            if not chunk:
+                return
+            pending += chunk
+            while b"\n" in pending:
+                line, pending = pending.split(b"\n", 1)
+                if not line.strip():
+                    continue
+                request = json.loads(line)
+                if "kill" in request:
+                    if request["kill"] in children:
+                        kill_group(request["kill"], request.get("signal", signal.SIGKILL))
+                    continue
+                try:
+                    send({"id": request["id"], "pid": spawn(request)})
+                except Exception as e:
+                    send({"id": request["id"], "error": str(e)})
+            # A child may have exited while we were forking
+            reap()
+
+
+if __name__ == "__main__":
+    main()
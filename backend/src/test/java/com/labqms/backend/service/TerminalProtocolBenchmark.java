@@ -0,0 +1,150 @@
+package com.labqms.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.labqms.backend.model.TerminalMessage;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.web.socket.sockjs.frame.Jackson2SockJsMessageCodec;
+import org.springframework.web.socket.sockjs.frame.SockJsFrame;
+import org.springframework.web.socket.sockjs.frame.SockJsMessageCodec;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+
+/**
+ * Compares the two terminal protocols on the same synthetic output: bytes on the wire and CPU
+ * time to encode one message, with and without permessage-deflate. The JSON path is encoded the
+ * way the STOMP broker and the SockJS WebSocket transport do it; the binary path with
+ * {@link TerminalFrameCodec}. Deflate uses context takeover and a sync flush per message, like
+ * the WebSocket extension.
+ *
+ * <p>Lives with the test sources so it never ships; run it with
+ * {@code java -cp target/classes:target/test-classes:<deps> com.labqms.backend.service.TerminalProtocolBenchmark [messages] [chars]}.
+ */
+public class TerminalProtocolBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StompEncoder stompEncoder = new StompEncoder();
+    private final SockJsMessageCodec sockJsCodec = new Jackson2SockJsMessageCodec();
+
+    public static void main(String[] args) {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 80;
+        new TerminalProtocolBenchmark().run(messages, size).forEach((name, value) -> System.out.println(name + ": " + value));
+    }
+
+    public Map<String, Object> run(int messageCount, int payloadChars) {
+        List<TerminalMessage> messages = sampleMessages(messageCount, payloadChars);
+        Function<TerminalMessage, byte[]> json = this::encodeJsonSockJs;
+        Function<TerminalMessage, byte[]> binary = message -> toArray(TerminalFrameCodec.encode(message));
+
+        // First pass warms up the encoders and is thrown away
+        measure(messages, json, false);
+        measure(messages, binary, false);
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("messages", messageCount);
+        results.put("payloadChars", payloadChars);
+        results.put("jsonSockJs", measure(messages, json, false));
+        results.put("jsonSockJsDeflate", measure(messages, json, true));
+        results.put("binary", measure(messages, binary, false));
+        results.put("binaryDeflate", measure(messages, binary, true));
+        return results;
+    }
+
+    private Map<String, Object> measure(List<TerminalMessage> messages, Function<TerminalMessage, byte[]> encoder, boolean deflate) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Deflater deflater = deflate ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+        byte[] buffer = new byte[64 * 1024];
+        long wireBytes = 0;
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        try {
+            for (TerminalMessage message : messages) {
+                byte[] payload = encoder.apply(message);
+                int length = payload.length;
+                if (deflater != null) {
+                    length = deflate(deflater, payload, buffer);
+                }
+                wireBytes += frameHeaderBytes(length) + length;
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        long cpuNanos = threads.getCurrentThreadCpuTime() - cpuStart;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("bytesPerMessage", (double) wireBytes / messages.size());
+        result.put("cpuNanosPerMessage", (double) cpuNanos / messages.size());
+        return result;
+    }
+
+    private byte[] encodeJsonSockJs(TerminalMessage message) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(message);
+            StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            headers.setNativeHeader("destination", "/topic/terminal/student-0001");
+            headers.setNativeHeader("content-type", "application/json");
+            headers.setNativeHeader("subscription", "sub-0");
+            headers.setNativeHeader("message-id", "a1b2c3d4-" + message.getSeq());
+            byte[] stomp = stompEncoder.encode(headers.getMessageHeaders(), json);
+            String frame = SockJsFrame.messageFrame(sockJsCodec, new String(stomp, StandardCharsets.UTF_8)).getContent();
+            return frame.getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Compressed size of one message, the trailing 00 00 ff ff of the sync flush isn't sent
+    private static int deflate(Deflater deflater, byte[] payload, byte[] buffer) {
+        deflater.setInput(payload);
+        int length = 0;
+        int n;
+        do {
+            n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            length += n;
+        } while (n == buffer.length);
+        return length - 4;
+    }
+
+    // Server frames aren't masked
+    private static int frameHeaderBytes(int payloadLength) {
+        return payloadLength < 126 ? 2 : payloadLength < 65536 ? 4 : 10;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    // Lines of typical program output, cut to the requested size
+    private static List<TerminalMessage> sampleMessages(int count, int payloadChars) {
+        List<TerminalMessage> messages = new ArrayList<>(count);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.setLength(0);
+            int line = 0;
+            while (sb.length() < payloadChars) {
+                sb.append("i = ").append(i).append(", sum[").append(line).append("] = ").append((long) i * 7919 + line * 31L).append("\r\n");
+                line++;
+            }
+            sb.setLength(payloadChars);
+            TerminalMessage message = TerminalMessage.output(sb.toString());
+            message.setSeq((long) i + 1);
+            messages.add(message);
+        }
+        return messages;
+    }
+}